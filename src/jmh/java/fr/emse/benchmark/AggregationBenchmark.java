@@ -0,0 +1,115 @@
+package fr.emse.benchmark;
+
+import fr.emse.worker.Aggregation.SalesFileReader;
+import fr.emse.worker.Aggregation.SalesRecordParser;
+import fr.emse.worker.Aggregation.SalesSummary;
+import fr.emse.worker.Aggregation.SummaryWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The workers' hot path on one synthetic file, stage by stage: parsing alone, aggregation of
+ * already parsed rows, summary writing, and all three together as a worker does for one S3 object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Param({"200000"})
+    public int rows;
+
+    @Param({"50", "1000"})
+    public int stores;
+
+    @Param({"1000", "100000"})
+    public int products;
+
+    @Param({",", ";"})
+    public String delimiter;
+
+    private byte[] csv;
+    private String[] rowStores;
+    private String[] rowProducts;
+    private int[] rowQuantities;
+    private double[] rowPrices;
+    private double[] rowProfits;
+    private SalesSummary summary;
+
+    private final SalesRecordParser parser = new SalesRecordParser();
+    private final SalesFileReader reader = new SalesFileReader();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = SalesCsvGenerator.generate(rows, stores, products, delimiter.charAt(0), 42);
+
+        rowStores = new String[rows];
+        rowProducts = new String[rows];
+        rowQuantities = new int[rows];
+        rowPrices = new double[rows];
+        rowProfits = new double[rows];
+        int[] count = {0};
+        new SalesRecordParser().parse(new ByteArrayInputStream(csv), (store, product, quantity, unitPrice, unitProfit) -> {
+            int i = count[0]++;
+            rowStores[i] = store;
+            rowProducts[i] = product;
+            rowQuantities[i] = quantity;
+            rowPrices[i] = unitPrice;
+            rowProfits[i] = unitProfit;
+        });
+
+        summary = aggregate();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        parser.parse(new ByteArrayInputStream(csv), (store, product, quantity, unitPrice, unitProfit) -> {
+            blackhole.consume(store);
+            blackhole.consume(product);
+            blackhole.consume(quantity);
+            blackhole.consume(unitPrice);
+            blackhole.consume(unitProfit);
+        });
+    }
+
+    @Benchmark
+    public SalesSummary aggregate() {
+        SalesSummary result = new SalesSummary();
+        for (int i = 0; i < rows; i++) {
+            int quantity = rowQuantities[i];
+            result.add(rowStores[i], rowProducts[i], quantity, rowProfits[i] * quantity, rowPrices[i] * quantity);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long writeSummary() throws IOException {
+        return SummaryWriter.write(summary, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long endToEnd() throws IOException {
+        SalesSummary result = new SalesSummary();
+        reader.aggregate("01-01-2024/bench.csv", null, new ByteArrayInputStream(csv), result, message -> { });
+        return SummaryWriter.write(result, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,100 @@
+package fr.emse.benchmark;
+
+import fr.emse.worker.Aggregation.SalesSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation into the four boxed HashMaps the workers used to fill, against {@link SalesSummary},
+ * on the same random rows; the GC profiler of the benchmark jar shows the bytes each allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationComparisonBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"500"})
+    public int stores;
+
+    @Param({"50000"})
+    public int products;
+
+    private String[] storeNames;
+    private String[] productNames;
+    private int[] rowStore;
+    private int[] rowProduct;
+    private int[] rowQuantity;
+    private double[] rowPrice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storeNames = new String[stores];
+        for (int i = 0; i < stores; i++) {
+            storeNames[i] = "Store " + i;
+        }
+        productNames = new String[products];
+        for (int i = 0; i < products; i++) {
+            productNames[i] = "Product " + i;
+        }
+        Random random = new Random(42);
+        rowStore = new int[rows];
+        rowProduct = new int[rows];
+        rowQuantity = new int[rows];
+        rowPrice = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            rowStore[i] = random.nextInt(stores);
+            rowProduct[i] = random.nextInt(products);
+            rowQuantity[i] = 1 + random.nextInt(20);
+            rowPrice[i] = 1 + random.nextInt(10_000) / 100.0;
+        }
+    }
+
+    @Benchmark
+    public Object[] boxedMaps() {
+        Map<String, Double> totalProfitByStore = new HashMap<>();
+        Map<String, Double> totalProfitByProduct = new HashMap<>();
+        Map<String, Integer> totalQuantityByProduct = new HashMap<>();
+        Map<String, Double> totalSoldByProduct = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            int quantity = rowQuantity[i];
+            double totalProfit = rowPrice[i] * 0.2 * quantity;
+            double totalSold = rowPrice[i] * quantity;
+            totalProfitByStore.merge(storeNames[rowStore[i]], totalProfit, Double::sum);
+            totalProfitByProduct.merge(productNames[rowProduct[i]], totalProfit, Double::sum);
+            totalQuantityByProduct.merge(productNames[rowProduct[i]], quantity, Integer::sum);
+            totalSoldByProduct.merge(productNames[rowProduct[i]], totalSold, Double::sum);
+        }
+        return new Object[]{totalProfitByStore, totalProfitByProduct, totalQuantityByProduct, totalSoldByProduct};
+    }
+
+    @Benchmark
+    public SalesSummary salesSummary() {
+        SalesSummary summary = new SalesSummary();
+        for (int i = 0; i < rows; i++) {
+            int quantity = rowQuantity[i];
+            summary.add(storeNames[rowStore[i]], productNames[rowProduct[i]], quantity, rowPrice[i] * 0.2 * quantity, rowPrice[i] * quantity);
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,57 @@
+package fr.emse.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic sales files in the client's 8-column format
+ * (date, store, product, quantity, unit price, unit cost, unit profit, total).
+ */
+public final class SalesCsvGenerator {
+
+    private SalesCsvGenerator() {
+    }
+
+    public static byte[] generate(int rows, int storeCount, int productCount, char delimiter, long seed) {
+        Random random = new Random(seed);
+        String[] prices = new String[productCount];
+        String[] costs = new String[productCount];
+        String[] profits = new String[productCount];
+        for (int i = 0; i < productCount; i++) {
+            int priceCents = 100 + random.nextInt(20_000);
+            int costCents = priceCents * (50 + random.nextInt(40)) / 100;
+            prices[i] = cents(priceCents);
+            costs[i] = cents(costCents);
+            profits[i] = cents(priceCents - costCents);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 72);
+        StringBuilder line = new StringBuilder(128);
+        String[] header = {"Date", "Store", "Product", "Quantity", "Unit Price", "Unit Cost", "Unit Profit", "Total"};
+        line.append(String.join(String.valueOf(delimiter), header)).append('\n');
+        for (int row = 0; row < rows; row++) {
+            int store = random.nextInt(storeCount);
+            int product = random.nextInt(productCount);
+            int quantity = 1 + random.nextInt(20);
+            line.append("01-01-2024").append(delimiter)
+                    .append("Store ").append(store).append(delimiter)
+                    .append("Product ").append(product).append(delimiter)
+                    .append(quantity).append(delimiter)
+                    .append(prices[product]).append(delimiter)
+                    .append(costs[product]).append(delimiter)
+                    .append(profits[product]).append(delimiter)
+                    .append(Double.parseDouble(prices[product]) * quantity).append('\n');
+            if (line.length() > 64 * 1024) {
+                out.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+                line.setLength(0);
+            }
+        }
+        out.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private static String cents(int cents) {
+        return cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+}
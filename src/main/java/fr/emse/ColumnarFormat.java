@@ -0,0 +1,80 @@
+package fr.emse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact binary columnar encoding of the 8-column sales CSV ({@code .scol} files).
+ * <pre>
+ * int magic "SCOL", int version
+ * 8 x UTF column name (the CSV header)
+ * blocks of up to BLOCK_ROWS rows:
+ *   int row count
+ *   for each of the 8 columns: byte encoding, then
+ *     DICTIONARY: varint count of new entries, the new entries as UTF, then one varint id per row.
+ *                 Each column has its own dictionary, which keeps growing across blocks
+ *     INTEGER:    one zigzag varint per row
+ *     DOUBLE:     one 8-byte IEEE 754 value per row
+ * int 0
+ * </pre>
+ * Date, store and product are dictionary-encoded, quantity is INTEGER, and unit price, unit cost, unit profit
+ * and total are DOUBLE (NaN where the CSV field was not a number; the workers only read price and profit).
+ */
+public final class ColumnarFormat {
+
+    public static final int MAGIC = 0x53434F4C; // "SCOL"
+    public static final int VERSION = 1;
+    public static final String SUFFIX = ".scol";
+    public static final int COLUMN_COUNT = 8;
+    public static final int BLOCK_ROWS = 64 * 1024;
+
+    public static final byte DICTIONARY = 1;
+    public static final byte INTEGER = 2;
+    public static final byte DOUBLE = 3;
+
+    public static final int DATE = 0;
+    public static final int STORE = 1;
+    public static final int PRODUCT = 2;
+    public static final int QUANTITY = 3;
+    public static final int UNIT_PRICE = 4;
+    public static final int UNIT_COST = 5;
+    public static final int UNIT_PROFIT = 6;
+    public static final int TOTAL = 7;
+
+    private ColumnarFormat() {
+    }
+
+    public static boolean isColumnar(String key) {
+        return Zip.stripSuffix(key).endsWith(SUFFIX);
+    }
+
+    public static void writeVarint(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void writeZigzag(DataOutput out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readZigzag(DataInput in) throws IOException {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
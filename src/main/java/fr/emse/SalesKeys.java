@@ -0,0 +1,58 @@
+package fr.emse;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Layout of the sales files in the client bucket: one prefix per day, {@code dd-MM-yyyy/<store>.csv}.
+ * Files uploaded before the layout was introduced are named {@code dd-MM-yyyy-<store>.csv}; both
+ * start with the date, so listing the date as a prefix finds either.
+ */
+public final class SalesKeys {
+
+    public static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    private static final Pattern DATE = Pattern.compile("\\d{2}-\\d{2}-\\d{4}");
+    private static final Pattern DATED_FILE_NAME = Pattern.compile("^(\\d{2}-\\d{2}-\\d{4})[-_ ]+(.+)$");
+
+    private SalesKeys() {
+    }
+
+    public static String listPrefix(LocalDate date) {
+        return date.format(FILE_DATE_FORMAT);
+    }
+
+    /**
+     * Key under which a file is stored: {@code 01-02-2024-store1.csv} becomes {@code 01-02-2024/store1.csv}.
+     * Names that do not start with a date are filed under the given date; keys that already have a prefix are kept.
+     */
+    public static String partitionedKey(String fileName, LocalDate defaultDate) {
+        if (fileName.indexOf('/') >= 0) {
+            return fileName;
+        }
+        Matcher matcher = DATED_FILE_NAME.matcher(fileName);
+        if (matcher.matches() && dateOf(matcher.group(1)) != null) {
+            return matcher.group(1) + "/" + matcher.group(2);
+        }
+        return listPrefix(defaultDate) + "/" + fileName;
+    }
+
+    /**
+     * First dd-MM-yyyy date found in the text, or null.
+     */
+    public static LocalDate dateOf(String text) {
+        Matcher matcher = DATE.matcher(text);
+        while (matcher.find()) {
+            try {
+                return LocalDate.parse(matcher.group(), FILE_DATE_FORMAT);
+            } catch (DateTimeParseException e) {
+                // Not a real date, keep looking
+            }
+        }
+        return null;
+    }
+}
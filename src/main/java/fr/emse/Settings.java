@@ -0,0 +1,19 @@
+package fr.emse;
+
+/**
+ * Settings lookup shared by the applications: a system property first, then the environment
+ * (property {@code storage.backend} maps to variable {@code STORAGE_BACKEND}).
+ */
+public final class Settings {
+
+    private Settings() {
+    }
+
+    public static String get(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(name.toUpperCase().replace('.', '_'));
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -1,4 +1,40 @@
 package fr.emse;
 
-public class Zip {
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip handling for sales files. A file is compressed when its key ends with {@code .gz}
+ * or its object was stored with {@code Content-Encoding: gzip}.
+ */
+public final class Zip {
+
+    public static final String SUFFIX = ".gz";
+    public static final String CONTENT_ENCODING = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Zip() {
+    }
+
+    public static boolean isCompressed(String key, String contentEncoding) {
+        return key.endsWith(SUFFIX) || (contentEncoding != null && contentEncoding.toLowerCase().contains(CONTENT_ENCODING));
+    }
+
+    /**
+     * Key without its {@code .gz} suffix, to find out what format the compressed content has.
+     */
+    public static String stripSuffix(String key) {
+        return key.endsWith(SUFFIX) ? key.substring(0, key.length() - SUFFIX.length()) : key;
+    }
+
+    public static InputStream decompress(InputStream in) throws IOException {
+        return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+
+    public static OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
 }
@@ -0,0 +1,324 @@
+package fr.emse.client;
+
+import fr.emse.SalesKeys;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-interactive upload of many sales files. Files are uploaded concurrently; files larger than
+ * one part use a multipart upload whose parts are sent in parallel. Each part is read once, and its
+ * SHA-256, sent as the S3 checksum, is computed from that same buffer; the checksum of a multipart object
+ * is derived from those of its parts. The size and modification time of the source file are stored as
+ * object metadata, and a file whose size and modification time match the object already in the bucket is
+ * skipped without being read.
+ */
+public class BatchUploader implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchUploader.class.getName());
+    private static final String SOURCE_SIZE_METADATA = "source-size";
+    private static final String SOURCE_MTIME_METADATA = "source-mtime";
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MILLIS = 200;
+    // S3 rejects parts smaller than 5 MiB, except the last one
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucketName;
+    private final int partSize;
+    private final UploadFormat format;
+    private final ExecutorService filePool;
+    private final ExecutorService partPool;
+
+    private final AtomicInteger uploaded = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesUploaded = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public BatchUploader(S3Client s3, String bucketName, int concurrency, int partSize, UploadFormat format) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.format = format;
+        this.filePool = Executors.newFixedThreadPool(concurrency);
+        // Separate pool so file tasks waiting on their parts never starve the parts themselves
+        this.partPool = Executors.newFixedThreadPool(concurrency);
+    }
+
+    /**
+     * Files matched by a directory (all its .csv files) or a glob such as {@code ~/CsvFiles/*-2024.csv}.
+     */
+    public static List<Path> resolve(String directoryOrGlob) throws IOException {
+        if (directoryOrGlob.startsWith("~" + System.getProperty("file.separator"))) {
+            directoryOrGlob = System.getProperty("user.home") + directoryOrGlob.substring(1);
+        }
+        Path directory;
+        String glob;
+        Path path = Paths.get(directoryOrGlob);
+        if (Files.isDirectory(path)) {
+            directory = path;
+            glob = "*.csv";
+        } else {
+            directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+            glob = path.getFileName().toString();
+        }
+
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && matcher.matches(file.getFileName())) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    public void uploadAll(List<Path> files) {
+        long start = System.nanoTime();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Path file : files) {
+            tasks.add(filePool.submit(() -> uploadOne(file)));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.SEVERE, "Unexpected upload error", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        printSummary(files.size(), System.nanoTime() - start);
+    }
+
+    private void uploadOne(Path source) {
+        String key = format.objectKey(SalesKeys.partitionedKey(source.getFileName().toString(), LocalDate.now()));
+        Path file = null;
+        try {
+            // Compared with the source file, so an unchanged file is neither read nor encoded again
+            Map<String, String> metadata = Map.of(
+                    SOURCE_SIZE_METADATA, Long.toString(Files.size(source)),
+                    SOURCE_MTIME_METADATA, Long.toString(Files.getLastModifiedTime(source).toMillis()));
+            if (metadata.equals(remoteMetadata(key, metadata.keySet()))) {
+                skipped.incrementAndGet();
+                LOGGER.fine("Unchanged, skipped: " + source + " -> " + key);
+                return;
+            }
+
+            // Checksums and sizes are those of the encoded file, which is what ends up in the bucket
+            file = format.encode(source);
+            long size = Files.size(file);
+            if (size <= partSize) {
+                uploadSinglePart(file, key, metadata);
+            } else {
+                uploadMultipart(file, key, size, metadata);
+            }
+            uploaded.incrementAndGet();
+            bytesUploaded.addAndGet(size);
+            LOGGER.info("Uploaded " + source + " as " + key);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            LOGGER.log(Level.SEVERE, "Error uploading " + source, e);
+        } finally {
+            deleteEncoded(source, file);
+        }
+    }
+
+    private static void deleteEncoded(Path source, Path file) {
+        if (file != null && !file.equals(source)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.warning("Could not delete temporary file " + file);
+            }
+        }
+    }
+
+    /**
+     * The given metadata entries of the object in the bucket, or null if there is no such object.
+     */
+    private Map<String, String> remoteMetadata(String key, Set<String> names) throws Exception {
+        try {
+            Map<String, String> metadata = withRetries(() ->
+                    s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build()).metadata());
+            Map<String, String> entries = new HashMap<>();
+            for (String name : names) {
+                if (metadata.containsKey(name)) {
+                    entries.put(name, metadata.get(name));
+                }
+            }
+            return entries;
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void uploadSinglePart(Path file, String key, Map<String, String> metadata) throws Exception {
+        // Read once: the checksum is computed from the same bytes that are sent
+        byte[] data = Files.readAllBytes(file);
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .metadata(metadata)
+                // The hash is already known, so the SDK sends it instead of computing another one
+                .checksumSHA256(Base64.getEncoder().encodeToString(messageDigest().digest(data)))
+                .build();
+        withRetries(() -> s3.putObject(request, RequestBody.fromBytes(data)));
+    }
+
+    private void uploadMultipart(Path file, String key, long size, Map<String, String> metadata) throws Exception {
+        String uploadId = withRetries(() -> s3.createMultipartUpload(builder -> builder
+                .bucket(bucketName)
+                .key(key)
+                .metadata(metadata)
+                .checksumAlgorithm(ChecksumAlgorithm.SHA256)).uploadId());
+        try {
+            int partCount = (int) ((size + partSize - 1) / partSize);
+            List<Future<CompletedPart>> parts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                long offset = (long) i * partSize;
+                int length = (int) Math.min(partSize, size - offset);
+                parts.add(partPool.submit(() -> uploadPart(file, key, uploadId, partNumber, offset, length)));
+            }
+            List<CompletedPart> completed = new ArrayList<>(partCount);
+            // The object's checksum is the SHA-256 of its parts' checksums, in part order
+            MessageDigest objectDigest = messageDigest();
+            for (Future<CompletedPart> part : parts) {
+                CompletedPart completedPart = part.get();
+                completed.add(completedPart);
+                objectDigest.update(Base64.getDecoder().decode(completedPart.checksumSHA256()));
+            }
+            String checksum = Base64.getEncoder().encodeToString(objectDigest.digest());
+            withRetries(() -> s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .checksumSHA256(checksum)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build()));
+        } catch (Exception e) {
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).build());
+            } catch (SdkException abortError) {
+                e.addSuppressed(abortError);
+            }
+            throw e;
+        }
+    }
+
+    private CompletedPart uploadPart(Path file, String key, String uploadId, int partNumber, long offset, int length) throws Exception {
+        // Each part is read once into memory; its checksum is computed from that same buffer
+        byte[] data = new byte[length];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("File shrank while uploading: " + file);
+                }
+            }
+        }
+        String checksum = Base64.getEncoder().encodeToString(messageDigest().digest(data));
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .checksumSHA256(checksum)
+                .build();
+        String eTag = withRetries(() -> s3.uploadPart(request, RequestBody.fromInputStream(new ByteArrayInputStream(data), length)).eTag());
+        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).checksumSHA256(checksum).build();
+    }
+
+    private <T> T withRetries(Callable<T> call) throws Exception {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (SdkException e) {
+                if (attempt == MAX_ATTEMPTS || !e.retryable()) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private static MessageDigest messageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void printSummary(int files, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+        double megabytes = bytesUploaded.get() / (1024.0 * 1024.0);
+        System.out.printf("Files: %d, uploaded: %d, skipped (unchanged): %d, failed: %d%n",
+                files, uploaded.get(), skipped.get(), failed.get());
+        System.out.printf("Elapsed: %.2f s, %.2f files/s, %.2f MB/s, retries: %d%n",
+                seconds, (uploaded.get() + skipped.get()) / seconds, megabytes / seconds, retries.get());
+    }
+
+    public int failedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        filePool.shutdown();
+        partPool.shutdown();
+    }
+}
@@ -0,0 +1,191 @@
+package fr.emse.client;
+
+import fr.emse.ColumnarFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Encodes a sales CSV into the {@link ColumnarFormat}. Rows the workers would reject (not 8 fields,
+ * or a quantity or price that is not a number) are left out and counted.
+ */
+public class ColumnarSalesWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(ColumnarSalesWriter.class.getName());
+
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+    private final List<List<String>> newEntries = new ArrayList<>();
+    private final int[][] ids = new int[ColumnarFormat.COLUMN_COUNT][ColumnarFormat.BLOCK_ROWS];
+    private final int[] quantities = new int[ColumnarFormat.BLOCK_ROWS];
+    private final double[] unitPrices = new double[ColumnarFormat.BLOCK_ROWS];
+    private final double[] unitCosts = new double[ColumnarFormat.BLOCK_ROWS];
+    private final double[] unitProfits = new double[ColumnarFormat.BLOCK_ROWS];
+    private final double[] totals = new double[ColumnarFormat.BLOCK_ROWS];
+    private int rows;
+    private long rejected;
+
+    private ColumnarSalesWriter() {
+        for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+            dictionaries.add(new HashMap<>());
+            newEntries.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Encodes {@code csv} to {@code out}, and returns the number of rows left out.
+     */
+    public static long encode(InputStream csv, OutputStream out) throws IOException {
+        return new ColumnarSalesWriter().write(csv, out);
+    }
+
+    private long write(InputStream csv, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), 64 * 1024);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        data.writeInt(ColumnarFormat.MAGIC);
+        data.writeInt(ColumnarFormat.VERSION);
+
+        String header = reader.readLine();
+        String[] names = header == null ? new String[0] : split(header);
+        for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+            data.writeUTF(names != null && column < names.length ? names[column] : "");
+        }
+
+        String line;
+        long lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String[] fields = split(line);
+            if (fields == null || !addRow(fields)) {
+                rejected++;
+                LOGGER.fine("Row left out at line " + lineNumber + ": " + line);
+                continue;
+            }
+            if (rows == ColumnarFormat.BLOCK_ROWS) {
+                flushBlock(data);
+            }
+        }
+        if (rows > 0) {
+            flushBlock(data);
+        }
+        data.writeInt(0);
+        data.flush();
+        return rejected;
+    }
+
+    /**
+     * Splits on ',' or ';' like the workers' CSV parser; null unless there are exactly 8 fields.
+     */
+    private static String[] split(String line) {
+        String[] fields = new String[ColumnarFormat.COLUMN_COUNT];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == ',' || line.charAt(i) == ';') {
+                if (count == fields.length) {
+                    return null;
+                }
+                fields[count++] = line.substring(start, i).trim();
+                start = i + 1;
+            }
+        }
+        return count == fields.length ? fields : null;
+    }
+
+    private boolean addRow(String[] fields) {
+        try {
+            quantities[rows] = Integer.parseInt(fields[ColumnarFormat.QUANTITY]);
+            unitPrices[rows] = Double.parseDouble(fields[ColumnarFormat.UNIT_PRICE]);
+            unitProfits[rows] = Double.parseDouble(fields[ColumnarFormat.UNIT_PROFIT]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        // The workers do not read these two, so a row is kept whatever they hold
+        unitCosts[rows] = parseOrNaN(fields[ColumnarFormat.UNIT_COST]);
+        totals[rows] = parseOrNaN(fields[ColumnarFormat.TOTAL]);
+        for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+            if (isDictionaryColumn(column)) {
+                ids[column][rows] = idOf(column, fields[column]);
+            }
+        }
+        rows++;
+        return true;
+    }
+
+    private static double parseOrNaN(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private int idOf(int column, String value) {
+        Map<String, Integer> dictionary = dictionaries.get(column);
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(value, id);
+            newEntries.get(column).add(value);
+        }
+        return id;
+    }
+
+    private void flushBlock(DataOutputStream data) throws IOException {
+        data.writeInt(rows);
+        for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+            if (isDictionaryColumn(column)) {
+                data.writeByte(ColumnarFormat.DICTIONARY);
+                List<String> entries = newEntries.get(column);
+                ColumnarFormat.writeVarint(data, entries.size());
+                for (String entry : entries) {
+                    data.writeUTF(entry);
+                }
+                entries.clear();
+                for (int row = 0; row < rows; row++) {
+                    ColumnarFormat.writeVarint(data, ids[column][row]);
+                }
+            } else if (column == ColumnarFormat.QUANTITY) {
+                data.writeByte(ColumnarFormat.INTEGER);
+                for (int row = 0; row < rows; row++) {
+                    ColumnarFormat.writeZigzag(data, quantities[row]);
+                }
+            } else {
+                data.writeByte(ColumnarFormat.DOUBLE);
+                double[] values = doubleColumn(column);
+                for (int row = 0; row < rows; row++) {
+                    data.writeDouble(values[row]);
+                }
+            }
+        }
+        rows = 0;
+    }
+
+    private double[] doubleColumn(int column) {
+        return switch (column) {
+            case ColumnarFormat.UNIT_PRICE -> unitPrices;
+            case ColumnarFormat.UNIT_COST -> unitCosts;
+            case ColumnarFormat.UNIT_PROFIT -> unitProfits;
+            case ColumnarFormat.TOTAL -> totals;
+            default -> throw new IllegalArgumentException("Not a numeric column: " + column);
+        };
+    }
+
+    /**
+     * Date, store and product, the only text columns; the numbers are stored as binary values, which a
+     * dictionary of high-cardinality prices and totals would only make larger.
+     */
+    private static boolean isDictionaryColumn(int column) {
+        return column == ColumnarFormat.DATE || column == ColumnarFormat.STORE || column == ColumnarFormat.PRODUCT;
+    }
+}
@@ -1,19 +1,25 @@
 package fr.emse.client;
 
+import fr.emse.SalesKeys;
+import fr.emse.storage.Storage;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.time.LocalDate;
 import java.util.logging.Logger;
 import java.util.logging.Level;
+import java.util.List;
 import java.util.Scanner;
 
 public class CsvFileUploader {
     private static final Logger LOGGER = Logger.getLogger(CsvFileUploader.class.getName());
     private S3Client s3;
+    private final UploadFormat format = UploadFormat.fromSystemProperty();
     private static final Region region = Region.US_EAST_1;
     private static final String bucket = "clientbucket13";
 
@@ -21,7 +27,7 @@ public class CsvFileUploader {
     private static final String DEFAULT_FILE_PATH = "~/Awsl/CsvFiles/";
 
     public CsvFileUploader() {
-        this.s3 = S3Client.builder()
+        this.s3 = Storage.isLocal() ? null : S3Client.builder()
                 .region(region)
                 .credentialsProvider(DefaultCredentialsProvider.create())
                 .build();
@@ -41,13 +47,18 @@ public class CsvFileUploader {
                 return;
             }
 
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(fileKey)
-                    .build();
+            // Files are stored under one prefix per day (dd-MM-yyyy/<store>.csv) so workers only list that day
+            String objectKey = format.objectKey(SalesKeys.partitionedKey(fileKey, LocalDate.now()));
 
-            s3.putObject(putObjectRequest, resolvedFilePath);
-            LOGGER.info("File uploaded successfully to bucket " + bucketName + " as " + fileKey);
+            Path uploadPath = format.encode(resolvedFilePath);
+            try {
+                Storage.bucket(s3, bucketName).put(objectKey, uploadPath);
+            } finally {
+                if (!uploadPath.equals(resolvedFilePath)) {
+                    Files.deleteIfExists(uploadPath);
+                }
+            }
+            LOGGER.info("File uploaded successfully to bucket " + bucketName + " as " + objectKey);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error occurred while uploading file", e);
         }
@@ -61,6 +72,11 @@ public class CsvFileUploader {
     }
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            runBatch(args);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.print("Enter the filename to upload: ");
@@ -75,4 +91,48 @@ public class CsvFileUploader {
 
         scanner.close();
     }
+
+    /**
+     * Batch mode: {@code <directory or glob> [concurrency] [part size in MiB]}.
+     */
+    private static void runBatch(String[] args) {
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int partSizeMiB = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        List<Path> files;
+        try {
+            files = BatchUploader.resolve(args[0]);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot list files matching " + args[0], e);
+            System.exit(1);
+            return;
+        }
+        if (files.isEmpty()) {
+            LOGGER.warning("No files match " + args[0]);
+            return;
+        }
+        if (Storage.isLocal()) {
+            // Plain file copies: no multipart uploads, checksums or retries to manage
+            CsvFileUploader uploader = new CsvFileUploader();
+            for (Path file : files) {
+                uploader.uploadFile(bucket, file.getFileName().toString(), file.toString());
+            }
+            return;
+        }
+
+        // Retries are done and counted by the batch uploader itself
+        S3Client s3 = S3Client.builder()
+                .region(region)
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .overrideConfiguration(config -> config.retryPolicy(RetryPolicy.none()))
+                .build();
+        try (BatchUploader batch = new BatchUploader(s3, bucket, concurrency, partSizeMiB * 1024 * 1024, UploadFormat.fromSystemProperty())) {
+            batch.uploadAll(files);
+            if (batch.failedCount() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            s3.close();
+        }
+    }
 }
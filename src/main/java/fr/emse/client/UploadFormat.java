@@ -0,0 +1,75 @@
+package fr.emse.client;
+
+import fr.emse.ColumnarFormat;
+import fr.emse.Zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * How sales files are sent, chosen with {@code -Dupload.format=csv|gzip|columnar|columnar-gzip}.
+ * The workers recognise the format from the object key suffix.
+ */
+public enum UploadFormat {
+    CSV(false, false),
+    GZIP(false, true),
+    COLUMNAR(true, false),
+    COLUMNAR_GZIP(true, true);
+
+    private static final Logger LOGGER = Logger.getLogger(UploadFormat.class.getName());
+
+    private final boolean columnar;
+    private final boolean compressed;
+
+    UploadFormat(boolean columnar, boolean compressed) {
+        this.columnar = columnar;
+        this.compressed = compressed;
+    }
+
+    public static UploadFormat fromSystemProperty() {
+        String value = System.getProperty("upload.format", "csv");
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * Object key for a CSV key: {@code store.csv} becomes {@code store.scol} and/or gets a {@code .gz} suffix.
+     */
+    public String objectKey(String csvKey) {
+        String key = csvKey;
+        if (columnar) {
+            key = (key.toLowerCase().endsWith(".csv") ? key.substring(0, key.length() - 4) : key) + ColumnarFormat.SUFFIX;
+        }
+        return compressed ? key + Zip.SUFFIX : key;
+    }
+
+    /**
+     * File to upload for {@code csvFile}: the file itself for {@link #CSV}, otherwise an encoded
+     * temporary file the caller deletes once it is uploaded.
+     */
+    public Path encode(Path csvFile) throws IOException {
+        if (this == CSV) {
+            return csvFile;
+        }
+        Path encoded = Files.createTempFile("upload-", objectKey(".csv"));
+        try (InputStream in = Files.newInputStream(csvFile);
+             OutputStream file = Files.newOutputStream(encoded);
+             OutputStream out = compressed ? Zip.compress(file) : file) {
+            if (columnar) {
+                long rejected = ColumnarSalesWriter.encode(in, out);
+                if (rejected > 0) {
+                    LOGGER.warning(rejected + " malformed row(s) left out of " + csvFile);
+                }
+            } else {
+                in.transferTo(out);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(encoded);
+            throw e;
+        }
+        return encoded;
+    }
+}
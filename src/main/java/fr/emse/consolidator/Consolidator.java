@@ -0,0 +1,107 @@
+package fr.emse.consolidator;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.Storage;
+import fr.emse.worker.Aggregation.SalesSummary;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Consolidated sales over a date or a date range, from the daily summaries in the summary bucket.
+ * Usage: {@code Consolidator <dd-MM-yyyy> [<dd-MM-yyyy>] [top N products]}.
+ * Parsed summaries and their week and month rollups are cached under {@code -Dconsolidator.cache.dir}
+ * (default {@code ~/.sales-consolidator}).
+ */
+public class Consolidator {
+
+    private static final String SUMMARY_BUCKET_NAME = "mybucket1308";
+    private static final int DEFAULT_TOP_PRODUCTS = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: Consolidator <dd-MM-yyyy> [<dd-MM-yyyy>] [top N products]");
+            return;
+        }
+        LocalDate from = LocalDate.parse(args[0], SalesKeys.FILE_DATE_FORMAT);
+        LocalDate to = args.length > 1 ? LocalDate.parse(args[1], SalesKeys.FILE_DATE_FORMAT) : from;
+        int topProducts = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TOP_PRODUCTS;
+        if (to.isBefore(from)) {
+            System.out.println("The end date is before the start date.");
+            return;
+        }
+
+        Path cacheDirectory = Paths.get(System.getProperty("consolidator.cache.dir",
+                System.getProperty("user.home") + "/.sales-consolidator"));
+        S3Client s3 = Storage.isLocal() ? null : S3Client.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .build();
+        try (SummaryIndex index = new SummaryIndex(Storage.bucket(s3, SUMMARY_BUCKET_NAME), cacheDirectory, 8)) {
+            long start = System.nanoTime();
+            SalesSummary summary = index.query(from, to);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Sales from " + from.format(SalesKeys.FILE_DATE_FORMAT) + " to " + to.format(SalesKeys.FILE_DATE_FORMAT)
+                    + " (" + index.summaryCount(from, to) + " daily summaries, " + index.getCacheHits() + " cached, "
+                    + index.getDownloads() + " downloaded, " + elapsedMillis + " ms)");
+            System.out.printf("Total retailer profit: %.2f%n%n", totalProfit(summary));
+
+            System.out.println("Profit by store:");
+            for (int store : storesByProfit(summary)) {
+                System.out.printf("  %s: %.2f%n", summary.storeName(store), summary.storeProfit(store));
+            }
+
+            System.out.println();
+            System.out.println("Top " + topProducts + " products by profit:");
+            for (int product : topProductsByProfit(summary, topProducts)) {
+                System.out.printf("  %s: profit %.2f, quantity %d, sold %.2f%n", summary.productName(product),
+                        summary.productProfit(product), summary.productQuantity(product), summary.productSold(product));
+            }
+        } finally {
+            if (s3 != null) {
+                s3.close();
+            }
+        }
+    }
+
+    public static double totalProfit(SalesSummary summary) {
+        double total = 0;
+        for (int i = 0; i < summary.storeCount(); i++) {
+            total += summary.storeProfit(i);
+        }
+        return total;
+    }
+
+    /**
+     * Store indexes of the summary, highest profit first.
+     */
+    public static List<Integer> storesByProfit(SalesSummary summary) {
+        List<Integer> stores = new ArrayList<>(summary.storeCount());
+        for (int i = 0; i < summary.storeCount(); i++) {
+            stores.add(i);
+        }
+        stores.sort(Comparator.comparingDouble(summary::storeProfit).reversed());
+        return stores;
+    }
+
+    /**
+     * Indexes of the {@code n} products with the highest profit, highest first.
+     */
+    public static List<Integer> topProductsByProfit(SalesSummary summary, int n) {
+        List<Integer> products = new ArrayList<>(summary.productCount());
+        for (int i = 0; i < summary.productCount(); i++) {
+            products.add(i);
+        }
+        products.sort(Comparator.comparingDouble(summary::productProfit).reversed());
+        return products.subList(0, Math.min(n, products.size()));
+    }
+}
@@ -0,0 +1,35 @@
+package fr.emse.consolidator;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Granularity of a pre-aggregated summary. Weeks are ISO weeks (Monday to Sunday), months are calendar months.
+ */
+public enum Period {
+    DAY,
+    WEEK,
+    MONTH;
+
+    public LocalDate end(LocalDate start) {
+        switch (this) {
+            case WEEK:
+                return start.plusDays(6);
+            case MONTH:
+                return start.plusMonths(1).minusDays(1);
+            default:
+                return start;
+        }
+    }
+
+    boolean startsOn(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.getDayOfWeek() == DayOfWeek.MONDAY;
+            case MONTH:
+                return date.getDayOfMonth() == 1;
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package fr.emse.consolidator;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.StoredObject;
+import fr.emse.worker.Aggregation.IngestException;
+import fr.emse.worker.Aggregation.IngestResult;
+import fr.emse.worker.Aggregation.LocalPartialStore;
+import fr.emse.worker.Aggregation.ParallelIngestor;
+import fr.emse.worker.Aggregation.PartialAggregate;
+import fr.emse.worker.Aggregation.PartialStore;
+import fr.emse.worker.Aggregation.SalesSummary;
+import fr.emse.worker.Aggregation.SourceFile;
+import fr.emse.worker.Aggregation.SummaryReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Answers date-range queries over the daily summaries in the summary bucket from a local store of
+ * pre-aggregated day, week and month summaries. A range is covered by whole months first, then whole
+ * weeks, then single days, so a quarter is three cached month summaries rather than ~90 downloads.
+ * <p>
+ * Each cached summary is tagged with the ETags of the daily summary objects it was built from
+ * (the ETag itself for a day, a hash of the day/ETag pairs for a week or month). One listing of the
+ * bucket per query tells which cached summaries are still current; stale ones are rebuilt, and only
+ * the days that changed are downloaded again.
+ */
+public class SummaryIndex implements AutoCloseable {
+
+    private static final String SUMMARY_PREFIX = "summary-";
+
+    private final ObjectStore summaryStore;
+    private final Map<Period, PartialStore> stores = new EnumMap<>(Period.class);
+    private final ParallelIngestor ingestor;
+
+    private NavigableMap<LocalDate, SourceFile> lastCatalog = new TreeMap<>();
+    private int cacheHits;
+    private int downloads;
+
+    public SummaryIndex(ObjectStore summaryStore, Path cacheDirectory, int downloadConcurrency) {
+        this.summaryStore = summaryStore;
+        for (Period period : Period.values()) {
+            stores.put(period, new LocalPartialStore(cacheDirectory.resolve(period.name().toLowerCase())));
+        }
+        this.ingestor = new ParallelIngestor(downloadConcurrency);
+    }
+
+    /**
+     * Sales from {@code from} to {@code to}, both included, merged from the daily summaries that exist in that range.
+     */
+    public SalesSummary query(LocalDate from, LocalDate to) throws IOException {
+        NavigableMap<LocalDate, SourceFile> catalog = catalog();
+        lastCatalog = catalog;
+        SalesSummary result = new SalesSummary();
+        for (Map.Entry<LocalDate, Period> segment : plan(from, to).entrySet()) {
+            result.merge(load(segment.getValue(), segment.getKey(), catalog));
+        }
+        return result;
+    }
+
+    /**
+     * Number of daily summaries available in the range, as of the last listing.
+     */
+    public int summaryCount(LocalDate from, LocalDate to) {
+        return lastCatalog.subMap(from, true, to, true).size();
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getDownloads() {
+        return downloads;
+    }
+
+    /**
+     * Covers the range with the largest periods that fit, keyed by period start.
+     */
+    static NavigableMap<LocalDate, Period> plan(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Period> plan = new TreeMap<>();
+        LocalDate date = from;
+        while (!date.isAfter(to)) {
+            Period period = Period.DAY;
+            if (Period.MONTH.startsOn(date) && !Period.MONTH.end(date).isAfter(to)) {
+                period = Period.MONTH;
+            } else if (Period.WEEK.startsOn(date) && !Period.WEEK.end(date).isAfter(to) && !spillsIntoWholeMonth(date, to)) {
+                period = Period.WEEK;
+            }
+            plan.put(date, period);
+            date = period.end(date).plusDays(1);
+        }
+        return plan;
+    }
+
+    /**
+     * True when the week starting on {@code monday} runs into a month that the range covers entirely,
+     * in which case days up to that month are cheaper than a week overlapping it.
+     */
+    private static boolean spillsIntoWholeMonth(LocalDate monday, LocalDate to) {
+        LocalDate sunday = Period.WEEK.end(monday);
+        if (sunday.getMonth() == monday.getMonth()) {
+            return false;
+        }
+        LocalDate nextMonth = sunday.withDayOfMonth(1);
+        return !Period.MONTH.end(nextMonth).isAfter(to);
+    }
+
+    private SalesSummary load(Period period, LocalDate start, NavigableMap<LocalDate, SourceFile> catalog) throws IOException {
+        NavigableMap<LocalDate, SourceFile> days = catalog.subMap(start, true, period.end(start), true);
+        if (days.isEmpty()) {
+            return new SalesSummary();
+        }
+        String fingerprint = fingerprint(period, days);
+        PartialAggregate cached = stores.get(period).load(start).get(period.name());
+        if (cached != null && cached.isBuiltFrom(fingerprint)) {
+            cacheHits++;
+            return cached.getSummary();
+        }
+
+        SalesSummary summary;
+        if (period == Period.DAY) {
+            summary = download(List.of(days.firstEntry().getValue())).get(days.firstEntry().getValue().getKey());
+        } else {
+            summary = new SalesSummary();
+            for (SalesSummary day : loadDays(days).values()) {
+                summary.merge(day);
+            }
+        }
+        stores.get(period).save(start, new PartialAggregate(period.name(), fingerprint, summary));
+        return summary;
+    }
+
+    /**
+     * Day summaries of a week or month: cached ones as they are, stale or missing ones downloaded in parallel.
+     */
+    private Map<LocalDate, SalesSummary> loadDays(NavigableMap<LocalDate, SourceFile> days) throws IOException {
+        Map<LocalDate, SalesSummary> summaries = new TreeMap<>();
+        List<SourceFile> stale = new ArrayList<>();
+        for (Map.Entry<LocalDate, SourceFile> day : days.entrySet()) {
+            PartialAggregate cached = stores.get(Period.DAY).load(day.getKey()).get(Period.DAY.name());
+            if (cached != null && cached.isBuiltFrom(day.getValue().getETag())) {
+                cacheHits++;
+                summaries.put(day.getKey(), cached.getSummary());
+            } else {
+                stale.add(day.getValue());
+            }
+        }
+
+        Map<String, SalesSummary> downloaded = download(stale);
+        for (SourceFile source : stale) {
+            LocalDate date = SalesKeys.dateOf(source.getKey());
+            SalesSummary summary = downloaded.get(source.getKey());
+            stores.get(Period.DAY).save(date, new PartialAggregate(Period.DAY.name(), source.getETag(), summary));
+            summaries.put(date, summary);
+        }
+        return summaries;
+    }
+
+    private Map<String, SalesSummary> download(List<SourceFile> sources) throws IngestException {
+        if (sources.isEmpty()) {
+            return Map.of();
+        }
+        IngestResult result = ingestor.ingest(sources, (source, summary) -> {
+            try (ObjectContent content = summaryStore.get(source.getKey())) {
+                summary.merge(SummaryReader.read(content));
+            }
+        });
+        if (!result.isComplete()) {
+            throw new IngestException(result.getFailures());
+        }
+        downloads += sources.size();
+        return result.getSummaries();
+    }
+
+    private NavigableMap<LocalDate, SourceFile> catalog() throws IOException {
+        NavigableMap<LocalDate, SourceFile> catalog = new TreeMap<>();
+        for (StoredObject object : summaryStore.list(SUMMARY_PREFIX)) {
+            LocalDate date = SalesKeys.dateOf(object.getKey());
+            if (date != null && object.getKey().endsWith(".csv")) {
+                catalog.put(date, new SourceFile(object.getKey(), object.getETag()));
+            }
+        }
+        return catalog;
+    }
+
+    private static String fingerprint(Period period, NavigableMap<LocalDate, SourceFile> days) {
+        if (period == Period.DAY) {
+            return days.firstEntry().getValue().getETag();
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<LocalDate, SourceFile> day : days.entrySet()) {
+                digest.update((day.getKey() + "=" + day.getValue().getETag() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        ingestor.close();
+    }
+}
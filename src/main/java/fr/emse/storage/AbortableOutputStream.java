@@ -0,0 +1,11 @@
+package fr.emse.storage;
+
+import java.io.OutputStream;
+
+public abstract class AbortableOutputStream extends OutputStream {
+
+    /**
+     * Drops what was written so far instead of publishing it.
+     */
+    public abstract void abort();
+}
@@ -0,0 +1,261 @@
+package fr.emse.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Object store kept in a local directory: a key is a path relative to the root, so
+ * {@code 01-02-2024/store1.csv} is the file {@code <root>/01-02-2024/store1.csv}. Used to process
+ * sales files offline and to load test the workers without S3.
+ * <p>
+ * Files of 1 MiB and more are read through memory-mapped windows. Writes go to a temporary file
+ * under {@code <root>/.tmp} that is moved into place when complete, so readers never see a partial
+ * object. The ETag is derived from the size and modification time of the file. Conditional writes and deletes
+ * are serialized by a lock file under {@code <root>/.tmp}, which also covers other processes on the same root.
+ */
+public class LocalObjectStore implements ObjectStore {
+
+    private static final long MIN_MAPPED_SIZE = 1024 * 1024;
+    private static final String TEMP_DIRECTORY = ".tmp";
+    private static final String CONDITIONAL_LOCK = "conditional.lock";
+    // A file lock is held by the whole JVM, so threads of this process take turns on this one first
+    private static final Object CONDITIONAL_MONITOR = new Object();
+
+    private final Path root;
+
+    public LocalObjectStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) throws IOException {
+        List<StoredObject> objects = new ArrayList<>();
+        if (Files.isDirectory(root)) {
+            collect(root, "", prefix, objects);
+        }
+        objects.sort(Comparator.comparing(StoredObject::getKey));
+        return objects;
+    }
+
+    // Only descends into directories that can hold keys with the prefix
+    private void collect(Path directory, String keyPrefix, String prefix, List<StoredObject> objects) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                String key = keyPrefix + name;
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    String directoryKey = key + "/";
+                    if (directoryKey.startsWith(prefix) || prefix.startsWith(directoryKey)) {
+                        collect(entry, directoryKey, prefix, objects);
+                    }
+                } else if (key.startsWith(prefix)) {
+                    objects.add(storedObject(key, attributes));
+                }
+            }
+        }
+    }
+
+    @Override
+    public StoredObject head(String key) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return storedObject(key, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    private static StoredObject storedObject(String key, BasicFileAttributes attributes) {
+        String eTag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        return new StoredObject(key, eTag, attributes.size());
+    }
+
+    @Override
+    public ObjectContent get(String key) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+        if (Files.size(file) < MIN_MAPPED_SIZE) {
+            return new ObjectContent(Files.newInputStream(file), null);
+        }
+        return new ObjectContent(new MappedInputStream(file), null);
+    }
+
+    @Override
+    public ObjectContent get(String key, long start, long end) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+        return new ObjectContent(new MappedInputStream(file, start, end), null);
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        Path target = resolve(key);
+        Path tempFile = createTempFile();
+        try {
+            Files.write(tempFile, content);
+            publish(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Path target = resolve(key);
+        Path tempFile = createTempFile();
+        try {
+            Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            publish(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public AbortableOutputStream create(String key, String contentType) throws IOException {
+        Path target = resolve(key);
+        Path tempFile = createTempFile();
+        OutputStream out = Files.newOutputStream(tempFile);
+        return new AbortableOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    out.close();
+                    publish(tempFile, target);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            }
+
+            @Override
+            public void abort() {
+                closed = true;
+                try {
+                    out.close();
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    // Left in the temporary directory
+                }
+            }
+        };
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public String putIfAbsent(String key, byte[] content) throws IOException {
+        return underConditionalLock(() -> {
+            if (Files.exists(resolve(key))) {
+                return null;
+            }
+            put(key, content);
+            return head(key).getETag();
+        });
+    }
+
+    @Override
+    public String putIfMatch(String key, byte[] content, String eTag) throws IOException {
+        return underConditionalLock(() -> {
+            StoredObject current = head(key);
+            if (current == null || !current.getETag().equals(eTag)) {
+                return null;
+            }
+            put(key, content);
+            StoredObject written = head(key);
+            if (written.getETag().equals(eTag)) {
+                // Same size, written within the same millisecond: move the time on so the ETag changes
+                Path target = resolve(key);
+                Files.setLastModifiedTime(target, FileTime.fromMillis(Files.getLastModifiedTime(target).toMillis() + 1));
+                written = head(key);
+            }
+            return written.getETag();
+        });
+    }
+
+    @Override
+    public boolean deleteIfMatch(String key, String eTag) throws IOException {
+        return underConditionalLock(() -> {
+            StoredObject current = head(key);
+            if (current == null || !current.getETag().equals(eTag)) {
+                return false;
+            }
+            delete(key);
+            return true;
+        });
+    }
+
+    private interface Conditional<T> {
+        T apply() throws IOException;
+    }
+
+    private <T> T underConditionalLock(Conditional<T> action) throws IOException {
+        Path lockFile = Files.createDirectories(root.resolve(TEMP_DIRECTORY)).resolve(CONDITIONAL_LOCK);
+        synchronized (CONDITIONAL_MONITOR) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Released when the channel is closed
+                channel.lock();
+                return action.apply();
+            }
+        }
+    }
+
+    private Path resolve(String key) throws IOException {
+        Path file = root.resolve(key).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new IOException("Invalid key " + key);
+        }
+        return file;
+    }
+
+    private Path createTempFile() throws IOException {
+        return Files.createTempFile(Files.createDirectories(root.resolve(TEMP_DIRECTORY)), "object", ".tmp");
+    }
+
+    private static void publish(Path tempFile, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        // Atomic replace so a concurrent reader never sees a half-written object
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
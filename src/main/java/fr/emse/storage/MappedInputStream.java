@@ -0,0 +1,94 @@
+package fr.emse.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file, or a range of it, through memory-mapped windows, so parsing copies straight from the
+ * page cache instead of going through a read system call per buffer. Files larger than one window are
+ * mapped one window at a time; a window is unmapped when the garbage collector frees it.
+ */
+class MappedInputStream extends InputStream {
+
+    static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedInputStream(Path file) throws IOException {
+        this(file, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads bytes {@code start} (inclusive) to {@code end} (exclusive) of the file.
+     */
+    MappedInputStream(Path file, long start, long end) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.end = Math.min(end, channel.size());
+        this.windowStart = Math.min(start, this.end);
+    }
+
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        long next = window == null ? windowStart : windowStart + window.capacity();
+        if (next >= end) {
+            return false;
+        }
+        windowStart = next;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW_SIZE, end - next));
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureWindow() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long position = window == null ? windowStart : windowStart + window.position();
+        long target = Math.min(end, position + Math.max(0, n));
+        if (window != null && target < windowStart + window.capacity()) {
+            window.position((int) (target - windowStart));
+        } else if (target < end) {
+            windowStart = target;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, target, Math.min(WINDOW_SIZE, end - target));
+        } else {
+            window = null;
+            windowStart = end;
+        }
+        return target - position;
+    }
+
+    @Override
+    public int available() {
+        return window == null ? 0 : window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,21 @@
+package fr.emse.storage;
+
+import java.io.FilterInputStream;
+import java.io.InputStream;
+
+/**
+ * Content of a stored object, with the Content-Encoding it was stored with (null when none).
+ */
+public class ObjectContent extends FilterInputStream {
+
+    private final String contentEncoding;
+
+    public ObjectContent(InputStream in, String contentEncoding) {
+        super(in);
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+}
@@ -0,0 +1,62 @@
+package fr.emse.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A bucket of objects addressed by key, backed by S3 ({@link S3ObjectStore}) or by a local
+ * directory ({@link LocalObjectStore}), so the workers, the uploader and the consolidator run
+ * unchanged against either. Failures of the backend are reported as {@link IOException}s.
+ */
+public interface ObjectStore {
+
+    /**
+     * Objects whose key starts with {@code prefix}, in key order.
+     */
+    List<StoredObject> list(String prefix) throws IOException;
+
+    /**
+     * The object's key, ETag and size, or null when there is no such object.
+     */
+    StoredObject head(String key) throws IOException;
+
+    /**
+     * Opens the object's content. Throws {@link java.nio.file.NoSuchFileException} when there is no such object.
+     */
+    ObjectContent get(String key) throws IOException;
+
+    /**
+     * Opens bytes {@code start} (inclusive) to {@code end} (exclusive) of the object, as stored: a range of
+     * a compressed object is a range of its compressed bytes.
+     */
+    ObjectContent get(String key, long start, long end) throws IOException;
+
+    void put(String key, byte[] content) throws IOException;
+
+    void put(String key, Path file) throws IOException;
+
+    /**
+     * Stream that publishes the object when it is closed; {@link AbortableOutputStream#abort()} publishes nothing.
+     */
+    AbortableOutputStream create(String key, String contentType) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Writes the object only if there is none under the key yet, atomically. Returns the new object's ETag,
+     * or null when the key already exists.
+     */
+    String putIfAbsent(String key, byte[] content) throws IOException;
+
+    /**
+     * Replaces the object only if its ETag is still {@code eTag}, atomically. Returns the new ETag, or null
+     * when the object was changed or deleted since.
+     */
+    String putIfMatch(String key, byte[] content, String eTag) throws IOException;
+
+    /**
+     * Deletes the object only if its ETag is still {@code eTag}. Returns false when it was changed or deleted since.
+     */
+    boolean deleteIfMatch(String key, String eTag) throws IOException;
+}
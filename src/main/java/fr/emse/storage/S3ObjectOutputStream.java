@@ -0,0 +1,140 @@
+package fr.emse.storage;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stream that uploads what is written to it as an S3 object, without a local file.
+ * Output that fits in one part is sent with a single PutObject when the stream is closed;
+ * larger output switches to a multipart upload, sending each part as soon as it is full.
+ * When writing fails, call {@link #abort()} instead of {@link #close()} so nothing is published.
+ */
+public class S3ObjectOutputStream extends AbortableOutputStream {
+
+    // S3 rejects parts smaller than 5 MiB, except the last one
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final String contentType;
+    private final byte[] part;
+    private int position;
+    private String uploadId;
+    private final List<CompletedPart> completedParts = new ArrayList<>();
+    private boolean closed;
+
+    public S3ObjectOutputStream(S3Client s3Client, String bucketName, String key, String contentType, int partSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.contentType = contentType;
+        this.part = new byte[Math.max(partSize, MIN_PART_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == part.length) {
+            uploadPart();
+        }
+        part[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == part.length) {
+                uploadPart();
+            }
+            int chunk = Math.min(length, part.length - position);
+            System.arraycopy(bytes, offset, part, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        try {
+            if (uploadId == null) {
+                uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build()).uploadId();
+            }
+            int partNumber = completedParts.size() + 1;
+            String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .build(), RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, position), position)).eTag();
+            completedParts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            position = 0;
+        } catch (SdkException e) {
+            abort();
+            throw new IOException("Error uploading part of " + key, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                s3Client.putObject(PutObjectRequest.builder().bucket(bucketName).key(key).contentType(contentType).build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, position), position));
+                return;
+            }
+            if (position > 0) {
+                uploadPart();
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+        } catch (SdkException e) {
+            abort();
+            throw new IOException("Error uploading " + key, e);
+        }
+    }
+
+    /**
+     * Drops whatever was uploaded so far, so no incomplete upload is left behind.
+     */
+    @Override
+    public void abort() {
+        closed = true;
+        if (uploadId != null) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (SdkException e) {
+                // Left to the bucket's lifecycle rule for incomplete uploads
+            }
+            uploadId = null;
+        }
+    }
+}
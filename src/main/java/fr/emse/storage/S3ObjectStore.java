@@ -0,0 +1,193 @@
+package fr.emse.storage;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class S3ObjectStore implements ObjectStore {
+
+    private static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    // Answers to a conditional request whose condition does not hold: the object is gone, a conflicting
+    // conditional write is still in progress, or the precondition failed
+    private static final int NOT_FOUND = 404;
+    private static final int CONFLICT = 409;
+    private static final int PRECONDITION_FAILED = 412;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final int partSize;
+
+    public S3ObjectStore(S3Client s3Client, String bucketName) {
+        this(s3Client, bucketName, DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * @param partSize part size of the multipart uploads of {@link #create(String, String)}
+     */
+    public S3ObjectStore(S3Client s3Client, String bucketName, int partSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.partSize = partSize;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) throws IOException {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build();
+        List<StoredObject> objects = new ArrayList<>();
+        try {
+            for (S3Object s3Object : s3Client.listObjectsV2Paginator(listRequest).contents()) {
+                objects.add(new StoredObject(s3Object.key(), s3Object.eTag(), s3Object.size()));
+            }
+        } catch (SdkException e) {
+            throw new IOException("Error listing " + bucketName + "/" + prefix, e);
+        }
+        return objects;
+    }
+
+    @Override
+    public StoredObject head(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+            return new StoredObject(key, head.eTag(), head.contentLength());
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (SdkException e) {
+            throw new IOException("Error reading metadata of " + bucketName + "/" + key, e);
+        }
+    }
+
+    @Override
+    public ObjectContent get(String key) throws IOException {
+        return get(GetObjectRequest.builder().bucket(bucketName).key(key).build());
+    }
+
+    @Override
+    public ObjectContent get(String key, long start, long end) throws IOException {
+        return get(GetObjectRequest.builder().bucket(bucketName).key(key).range("bytes=" + start + "-" + (end - 1)).build());
+    }
+
+    private ObjectContent get(GetObjectRequest request) throws IOException {
+        try {
+            ResponseInputStream<GetObjectResponse> s3is = s3Client.getObject(request);
+            return new ObjectContent(s3is, s3is.response().contentEncoding());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(bucketName + "/" + request.key());
+        } catch (SdkException e) {
+            throw new IOException("Error reading " + bucketName + "/" + request.key(), e);
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        put(key, RequestBody.fromBytes(content));
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        put(key, RequestBody.fromFile(file));
+    }
+
+    private void put(String key, RequestBody body) throws IOException {
+        try {
+            s3Client.putObject(PutObjectRequest.builder().bucket(bucketName).key(key).build(), body);
+        } catch (SdkException e) {
+            throw new IOException("Error writing " + bucketName + "/" + key, e);
+        }
+    }
+
+    @Override
+    public AbortableOutputStream create(String key, String contentType) {
+        return new S3ObjectOutputStream(s3Client, bucketName, key, contentType, partSize);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build());
+        } catch (SdkException e) {
+            throw new IOException("Error deleting " + bucketName + "/" + key, e);
+        }
+    }
+
+    // The SDK version has no builder methods for the conditional headers, so they are set as request overrides
+
+    @Override
+    public String putIfAbsent(String key, byte[] content) throws IOException {
+        return putIf(key, content, "If-None-Match", "*");
+    }
+
+    @Override
+    public String putIfMatch(String key, byte[] content, String eTag) throws IOException {
+        return putIf(key, content, "If-Match", quote(eTag));
+    }
+
+    private String putIf(String key, byte[] content, String header, String value) throws IOException {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .overrideConfiguration(o -> o.putHeader(header, value))
+                .build();
+        try {
+            return new StoredObject(key, s3Client.putObject(request, RequestBody.fromBytes(content)).eTag(), content.length).getETag();
+        } catch (S3Exception e) {
+            if (isConditionNotMet(e)) {
+                return null;
+            }
+            throw new IOException("Error writing " + bucketName + "/" + key, e);
+        } catch (SdkException e) {
+            throw new IOException("Error writing " + bucketName + "/" + key, e);
+        }
+    }
+
+    @Override
+    public boolean deleteIfMatch(String key, String eTag) throws IOException {
+        DeleteObjectRequest request = DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .overrideConfiguration(o -> o.putHeader("If-Match", quote(eTag)))
+                .build();
+        try {
+            s3Client.deleteObject(request);
+            return true;
+        } catch (S3Exception e) {
+            if (isConditionNotMet(e)) {
+                return false;
+            }
+            throw new IOException("Error deleting " + bucketName + "/" + key, e);
+        } catch (SdkException e) {
+            throw new IOException("Error deleting " + bucketName + "/" + key, e);
+        }
+    }
+
+    private static boolean isConditionNotMet(S3Exception e) {
+        return e.statusCode() == NOT_FOUND || e.statusCode() == CONFLICT || e.statusCode() == PRECONDITION_FAILED;
+    }
+
+    private static String quote(String eTag) {
+        return "\"" + eTag + "\"";
+    }
+}
@@ -0,0 +1,36 @@
+package fr.emse.storage;
+
+import fr.emse.Settings;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Chooses the storage backend: {@code storage.backend} (variable {@code STORAGE_BACKEND}) is {@code s3},
+ * the default, or {@code local}, where each bucket is a directory named after it under
+ * {@code storage.local.root} (variable {@code STORAGE_LOCAL_ROOT}, default {@code ./storage}).
+ */
+public final class Storage {
+
+    public static final String BACKEND = "storage.backend";
+    public static final String LOCAL_ROOT = "storage.local.root";
+
+    private Storage() {
+    }
+
+    public static boolean isLocal() {
+        return "local".equalsIgnoreCase(Settings.get(BACKEND, "s3"));
+    }
+
+    public static Path localRoot() {
+        return Paths.get(Settings.get(LOCAL_ROOT, "storage"));
+    }
+
+    /**
+     * The bucket in the configured backend; {@code s3Client} is only used by the S3 backend and may be null otherwise.
+     */
+    public static ObjectStore bucket(S3Client s3Client, String bucketName) {
+        return isLocal() ? new LocalObjectStore(localRoot().resolve(bucketName)) : new S3ObjectStore(s3Client, bucketName);
+    }
+}
@@ -0,0 +1,27 @@
+package fr.emse.storage;
+
+public class StoredObject {
+
+    private final String key;
+    private final String eTag;
+    private final long size;
+
+    public StoredObject(String key, String eTag, long size) {
+        this.key = key;
+        // Listings return ETags quoted, event notifications do not
+        this.eTag = eTag == null ? null : eTag.replace("\"", "");
+        this.size = size;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
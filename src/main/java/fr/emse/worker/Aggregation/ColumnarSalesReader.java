@@ -0,0 +1,134 @@
+package fr.emse.worker.Aggregation;
+
+import fr.emse.ColumnarFormat;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads {@link ColumnarFormat} files and hands their rows to a {@link SalesRecordHandler}.
+ * Quantities and prices are stored as binary values, and store and product names are shared
+ * dictionary entries, so no text is parsed. Columns the summary does not use are skipped.
+ * Not thread-safe.
+ */
+public class ColumnarSalesReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<List<String>> dictionaries = new ArrayList<>(ColumnarFormat.COLUMN_COUNT);
+    private int[] storeIds = new int[0];
+    private int[] productIds = new int[0];
+    private int[] quantities = new int[0];
+    private double[] unitPrices = new double[0];
+    private double[] unitProfits = new double[0];
+
+    public void read(InputStream in, SalesRecordHandler handler) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        if (data.readInt() != ColumnarFormat.MAGIC) {
+            throw new IOException("Not a columnar sales file");
+        }
+        int version = data.readInt();
+        if (version != ColumnarFormat.VERSION) {
+            throw new IOException("Unsupported columnar sales file version " + version);
+        }
+        dictionaries.clear();
+        for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+            data.readUTF();
+            dictionaries.add(new ArrayList<>());
+        }
+
+        int rows;
+        while ((rows = data.readInt()) > 0) {
+            ensureCapacity(rows);
+            for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+                byte encoding = data.readByte();
+                switch (column) {
+                    case ColumnarFormat.STORE -> readIds(data, encoding, column, rows, storeIds);
+                    case ColumnarFormat.PRODUCT -> readIds(data, encoding, column, rows, productIds);
+                    case ColumnarFormat.QUANTITY -> readQuantities(data, encoding, rows);
+                    case ColumnarFormat.UNIT_PRICE -> readDoubles(data, encoding, column, rows, unitPrices);
+                    case ColumnarFormat.UNIT_PROFIT -> readDoubles(data, encoding, column, rows, unitProfits);
+                    default -> skipColumn(data, encoding, rows);
+                }
+            }
+
+            List<String> stores = dictionaries.get(ColumnarFormat.STORE);
+            List<String> products = dictionaries.get(ColumnarFormat.PRODUCT);
+            for (int row = 0; row < rows; row++) {
+                handler.onRecord(stores.get(storeIds[row]), products.get(productIds[row]),
+                        quantities[row], unitPrices[row], unitProfits[row]);
+            }
+        }
+    }
+
+    private void readIds(DataInputStream data, byte encoding, int column, int rows, int[] ids) throws IOException {
+        expect(encoding, ColumnarFormat.DICTIONARY, column);
+        List<String> dictionary = dictionaries.get(column);
+        int newEntries = (int) ColumnarFormat.readVarint(data);
+        for (int i = 0; i < newEntries; i++) {
+            dictionary.add(data.readUTF());
+        }
+        for (int row = 0; row < rows; row++) {
+            int id = (int) ColumnarFormat.readVarint(data);
+            if (id >= dictionary.size()) {
+                throw new IOException("Dictionary id " + id + " out of range in column " + column);
+            }
+            ids[row] = id;
+        }
+    }
+
+    private void readQuantities(DataInputStream data, byte encoding, int rows) throws IOException {
+        expect(encoding, ColumnarFormat.INTEGER, ColumnarFormat.QUANTITY);
+        for (int row = 0; row < rows; row++) {
+            quantities[row] = (int) ColumnarFormat.readZigzag(data);
+        }
+    }
+
+    private static void readDoubles(DataInputStream data, byte encoding, int column, int rows, double[] values) throws IOException {
+        expect(encoding, ColumnarFormat.DOUBLE, column);
+        for (int row = 0; row < rows; row++) {
+            values[row] = data.readDouble();
+        }
+    }
+
+    private static void skipColumn(DataInputStream data, byte encoding, int rows) throws IOException {
+        switch (encoding) {
+            case ColumnarFormat.DICTIONARY -> {
+                int newEntries = (int) ColumnarFormat.readVarint(data);
+                for (int i = 0; i < newEntries; i++) {
+                    data.skipNBytes(data.readUnsignedShort());
+                }
+                for (int row = 0; row < rows; row++) {
+                    ColumnarFormat.readVarint(data);
+                }
+            }
+            case ColumnarFormat.INTEGER -> {
+                for (int row = 0; row < rows; row++) {
+                    ColumnarFormat.readVarint(data);
+                }
+            }
+            case ColumnarFormat.DOUBLE -> data.skipNBytes(8L * rows);
+            default -> throw new IOException("Unknown column encoding " + encoding);
+        }
+    }
+
+    private static void expect(byte encoding, byte expected, int column) throws IOException {
+        if (encoding != expected) {
+            throw new IOException("Unexpected encoding " + encoding + " for column " + column);
+        }
+    }
+
+    private void ensureCapacity(int rows) {
+        if (storeIds.length < rows) {
+            storeIds = new int[rows];
+            productIds = new int[rows];
+            quantities = new int[rows];
+            unitPrices = new double[rows];
+            unitProfits = new double[rows];
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Builds a day's summary by merging one persisted partial per source file. Only files
+ * without a partial, or whose ETag changed since their partial was built, are parsed.
+ */
+public class IncrementalAggregator {
+
+    private final PartialStore partialStore;
+    private final ParallelIngestor ingestor;
+    private final Consumer<String> logger;
+
+    public IncrementalAggregator(PartialStore partialStore, ParallelIngestor ingestor, Consumer<String> logger) {
+        this.partialStore = partialStore;
+        this.ingestor = ingestor;
+        this.logger = logger;
+    }
+
+    /**
+     * Brings the partials of the date up to date with the given source files and merges them.
+     * Partials that could be rebuilt are saved even when other files fail; in that case an
+     * {@link IngestException} listing the failed files is thrown instead of returning a summary.
+     */
+    public SalesSummary aggregate(LocalDate date, List<SourceFile> sources, SourceParser parser) throws IOException {
+        Map<String, PartialAggregate> partials = partialStore.load(date);
+
+        Set<String> sourceKeys = new HashSet<>();
+        List<SourceFile> stale = new ArrayList<>();
+        for (SourceFile source : sources) {
+            sourceKeys.add(source.getKey());
+            PartialAggregate existing = partials.get(source.getKey());
+            if (existing == null || !existing.isBuiltFrom(source.getETag())) {
+                logger.accept("Building partial for file: " + source.getKey());
+                stale.add(source);
+            }
+        }
+
+        IngestResult result = ingestor.ingest(stale, parser);
+        for (SourceFile source : stale) {
+            SalesSummary summary = result.getSummaries().get(source.getKey());
+            if (summary != null) {
+                PartialAggregate partial = new PartialAggregate(source.getKey(), source.getETag(), summary);
+                partialStore.save(date, partial);
+                partials.put(source.getKey(), partial);
+            }
+        }
+        if (!result.isComplete()) {
+            throw new IngestException(result.getFailures());
+        }
+
+        // Drop partials of files that were removed from the bucket since they were built
+        partials.keySet().removeIf(sourceKey -> {
+            if (sourceKeys.contains(sourceKey)) {
+                return false;
+            }
+            try {
+                partialStore.delete(date, sourceKey);
+            } catch (IOException e) {
+                logger.accept("Error deleting stale partial: " + sourceKey + " - " + e.getMessage());
+            }
+            return true;
+        });
+
+        SalesSummary total = new SalesSummary();
+        partials.values().forEach(partial -> total.merge(partial.getSummary()));
+        return total;
+    }
+}
@@ -0,0 +1,21 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.util.Map;
+
+public class IngestException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Exception> failures;
+
+    public IngestException(Map<String, Exception> failures) {
+        super(failures.size() + " file(s) could not be processed: " + String.join(", ", failures.keySet()));
+        this.failures = failures;
+        failures.values().forEach(this::addSuppressed);
+    }
+
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,39 @@
+package fr.emse.worker.Aggregation;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class IngestResult {
+
+    private final Map<String, SalesSummary> summaries;
+    private final Map<String, Exception> failures;
+
+    IngestResult(Map<String, SalesSummary> summaries, Map<String, Exception> failures) {
+        this.summaries = Collections.unmodifiableMap(summaries);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Per-file aggregates of the files that were parsed successfully, keyed by object key.
+     */
+    public Map<String, SalesSummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * Cause of failure for every file that could not be read or parsed, keyed by object key.
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public SalesSummary merged() {
+        SalesSummary total = new SalesSummary();
+        summaries.values().forEach(total::merge);
+        return total;
+    }
+}
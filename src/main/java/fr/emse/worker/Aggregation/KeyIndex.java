@@ -0,0 +1,84 @@
+package fr.emse.worker.Aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from a key to a dense id (0, 1, 2... in insertion order), used to
+ * address the primitive columns of {@link SalesSummary}.
+ */
+class KeyIndex {
+
+    private int[] table = new int[64]; // id + 1, 0 marks an empty slot
+    private String[] keys = new String[32];
+    private int[] hashes = new int[32];
+    private int size;
+
+    int getOrAdd(String key) {
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            String existing = keys[id];
+            // Keys coming from the parser are interned, so the identity check usually hits
+            if (existing == key || (hashes[id] == hash && existing.equals(key))) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        if (id == keys.length) {
+            keys = Arrays.copyOf(keys, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        keys[id] = key;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    int indexOf(String key) {
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && keys[id].equals(key)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    String key(int id) {
+        return keys[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int hash(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
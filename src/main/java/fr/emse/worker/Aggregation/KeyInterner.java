@@ -0,0 +1,83 @@
+package fr.emse.worker.Aggregation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps byte ranges to canonical {@link String} instances so repeated store and product
+ * names are decoded once and then shared by every row that mentions them. Parsers live as long as
+ * their thread, so the table starts over once it holds {@value #MAX_SIZE} names rather than keeping
+ * every name ever read.
+ */
+class KeyInterner {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_SIZE = 1 << 16;
+
+    private byte[][] keys = new byte[INITIAL_CAPACITY][];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int size;
+
+    String intern(byte[] bytes, int from, int to) {
+        int hash = hash(bytes, from, to);
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        byte[] key;
+        while ((key = keys[slot]) != null) {
+            if (Arrays.equals(key, 0, key.length, bytes, from, to)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == MAX_SIZE) {
+            clear();
+            slot = hash & (keys.length - 1);
+        }
+        String value = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        keys[slot] = Arrays.copyOfRange(bytes, from, to);
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        keys = new byte[INITIAL_CAPACITY][];
+        values = new String[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private void resize() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            byte[] key = oldKeys[i];
+            if (key == null) {
+                continue;
+            }
+            int slot = hash(key, 0, key.length) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,112 @@
+package fr.emse.worker.Aggregation;
+
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The lines of an object that start within bytes {@code [start, end)}, read with ranged requests. The line
+ * that crosses {@code end} is read to its newline with further requests, and for a range past the start of
+ * the object the line that crosses {@code start} is skipped: both belong to the range they start in.
+ */
+final class LineRangeInputStream extends InputStream {
+
+    // Read past the end of the range in the same request, enough to finish the last line
+    private static final int TAIL_SIZE = 64 * 1024;
+
+    private final ObjectStore store;
+    private final String key;
+    private final long end;
+    private final long size;
+    private final String contentEncoding;
+    private ObjectContent current;
+    // Offset in the object of the next byte of current, and end of the bytes requested so far
+    private long position;
+    private long fetchedTo;
+    private boolean done;
+
+    LineRangeInputStream(ObjectStore store, String key, long start, long end, long size) throws IOException {
+        this.store = store;
+        this.key = key;
+        this.end = end;
+        this.size = size;
+        this.position = start == 0 ? 0 : start - 1;
+        this.fetchedTo = Math.min(size, end + TAIL_SIZE);
+        this.current = store.get(key, position, fetchedTo);
+        this.contentEncoding = current.getContentEncoding();
+        if (start > 0) {
+            skipPartialLine();
+        }
+    }
+
+    String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    private void skipPartialLine() throws IOException {
+        // From start - 1: when the previous range ends exactly on a newline, nothing is skipped
+        byte[] single = new byte[1];
+        int count;
+        while ((count = readFetched(single, 0, 1)) > 0) {
+            position++;
+            if (single[0] == '\n') {
+                break;
+            }
+        }
+        done = count < 0 || position >= end;
+    }
+
+    private int readFetched(byte[] bytes, int offset, int length) throws IOException {
+        int count;
+        while ((count = current.read(bytes, offset, length)) < 0) {
+            if (fetchedTo >= size) {
+                return -1;
+            }
+            current.close();
+            long next = Math.min(size, fetchedTo + TAIL_SIZE);
+            current = store.get(key, fetchedTo, next);
+            fetchedTo = next;
+        }
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (done) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        int count = readFetched(bytes, offset, length);
+        if (count < 0) {
+            done = true;
+            return -1;
+        }
+        long from = position;
+        position += count;
+        if (position >= end) {
+            // The range ends with the first newline at or after its last byte
+            for (int i = (int) Math.max(0, end - 1 - from); i < count; i++) {
+                if (bytes[offset + i] == '\n') {
+                    done = true;
+                    return i + 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        current.close();
+    }
+}
@@ -0,0 +1,93 @@
+package fr.emse.worker.Aggregation;
+
+import fr.emse.SalesKeys;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class LocalPartialStore implements PartialStore {
+
+    private static final String SUFFIX = ".partial";
+
+    private final Path root;
+
+    public LocalPartialStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public Map<String, PartialAggregate> load(LocalDate date) throws IOException {
+        Map<String, PartialAggregate> partials = new HashMap<>();
+        Path dateDir = dateDirectory(date);
+        if (!Files.isDirectory(dateDir)) {
+            return partials;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dateDir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    PartialAggregate partial = PartialAggregate.readFrom(in);
+                    partials.put(partial.getSourceKey(), partial);
+                }
+            }
+        }
+        return partials;
+    }
+
+    @Override
+    public Set<String> sourceKeys(LocalDate date) throws IOException {
+        Set<String> sourceKeys = new HashSet<>();
+        Path dateDir = dateDirectory(date);
+        if (!Files.isDirectory(dateDir)) {
+            return sourceKeys;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dateDir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                sourceKeys.add(URLDecoder.decode(name.substring(0, name.length() - SUFFIX.length()), StandardCharsets.UTF_8));
+            }
+        }
+        return sourceKeys;
+    }
+
+    @Override
+    public void save(LocalDate date, PartialAggregate partial) throws IOException {
+        Path dateDir = Files.createDirectories(dateDirectory(date));
+        Path target = dateDir.resolve(fileName(partial.getSourceKey()));
+        Path tempFile = Files.createTempFile(dateDir, "partial", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                partial.writeTo(out);
+            }
+            // Atomic replace so a concurrent reader never sees a half-written partial
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void delete(LocalDate date, String sourceKey) throws IOException {
+        Files.deleteIfExists(dateDirectory(date).resolve(fileName(sourceKey)));
+    }
+
+    private Path dateDirectory(LocalDate date) {
+        return root.resolve(date.format(SalesKeys.FILE_DATE_FORMAT));
+    }
+
+    private static String fileName(String sourceKey) {
+        return URLEncoder.encode(sourceKey, StandardCharsets.UTF_8) + SUFFIX;
+    }
+}
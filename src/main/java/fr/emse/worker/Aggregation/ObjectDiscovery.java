@@ -0,0 +1,94 @@
+package fr.emse.worker.Aggregation;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.StoredObject;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the sales files of a date by listing only that date's prefix.
+ * With a cache time to live, the result is kept as a per-date manifest of the listed files.
+ * Files named in upload notifications are merged into the manifest with their ETag, or a HEAD
+ * of the object when the notification has none. The prefix is listed again once the manifest expires.
+ */
+public class ObjectDiscovery {
+
+    private final ObjectStore store;
+    private final long cacheTimeToLiveMillis;
+    private final Map<LocalDate, Manifest> manifests = new ConcurrentHashMap<>();
+
+    public ObjectDiscovery(ObjectStore store, long cacheTimeToLiveMillis) {
+        this.store = store;
+        this.cacheTimeToLiveMillis = cacheTimeToLiveMillis;
+    }
+
+    public List<SourceFile> discover(LocalDate date) throws IOException {
+        return discover(date, Map.of());
+    }
+
+    /**
+     * Lists the date's files. {@code notified} maps keys of files known to have just been uploaded
+     * to their ETag (null when unknown); they are applied to a cached manifest instead of relisting.
+     */
+    public List<SourceFile> discover(LocalDate date, Map<String, String> notified) throws IOException {
+        long now = System.currentTimeMillis();
+        Manifest manifest = manifests.get(date);
+        if (manifest == null || now - manifest.listedAt >= cacheTimeToLiveMillis) {
+            manifest = list(date, now);
+            if (cacheTimeToLiveMillis > 0) {
+                manifests.put(date, manifest);
+            }
+        } else {
+            synchronized (manifest) {
+                for (Map.Entry<String, String> file : notified.entrySet()) {
+                    manifest.apply(file.getKey(), file.getValue());
+                }
+            }
+        }
+        synchronized (manifest) {
+            return new ArrayList<>(manifest.files.values());
+        }
+    }
+
+    public void invalidate(LocalDate date) {
+        manifests.remove(date);
+    }
+
+    private Manifest list(LocalDate date, long now) throws IOException {
+        Manifest manifest = new Manifest(now);
+        for (StoredObject object : store.list(SalesKeys.listPrefix(date))) {
+            manifest.files.put(object.getKey(), new SourceFile(object.getKey(), object.getETag(), object.getSize()));
+        }
+        return manifest;
+    }
+
+    private class Manifest {
+        private final long listedAt;
+        private final Map<String, SourceFile> files = new TreeMap<>();
+
+        private Manifest(long listedAt) {
+            this.listedAt = listedAt;
+        }
+
+        private void apply(String key, String eTag) throws IOException {
+            if (eTag != null) {
+                // The notification does not carry the size; it is looked up if the file needs it
+                files.put(key, new SourceFile(key, eTag));
+                return;
+            }
+            StoredObject head = store.head(key);
+            if (head == null) {
+                files.remove(key);
+                return;
+            }
+            files.put(key, new SourceFile(key, head.getETag(), head.getSize()));
+        }
+    }
+}
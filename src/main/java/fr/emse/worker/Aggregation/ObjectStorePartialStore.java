@@ -0,0 +1,81 @@
+package fr.emse.worker.Aggregation;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.StoredObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partials kept as objects under {@code partials/<date>/} of the summary bucket, or under another prefix.
+ */
+public class ObjectStorePartialStore implements PartialStore {
+
+    private static final String SUFFIX = ".partial";
+
+    private final ObjectStore store;
+    private final String prefix;
+
+    public ObjectStorePartialStore(ObjectStore store) {
+        this(store, "partials/");
+    }
+
+    public ObjectStorePartialStore(ObjectStore store, String prefix) {
+        this.store = store;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Map<String, PartialAggregate> load(LocalDate date) throws IOException {
+        Map<String, PartialAggregate> partials = new HashMap<>();
+        for (StoredObject object : store.list(datePrefix(date))) {
+            if (!object.getKey().endsWith(SUFFIX)) {
+                continue;
+            }
+            try (ObjectContent content = store.get(object.getKey())) {
+                PartialAggregate partial = PartialAggregate.readFrom(content);
+                partials.put(partial.getSourceKey(), partial);
+            }
+        }
+        return partials;
+    }
+
+    @Override
+    public Set<String> sourceKeys(LocalDate date) throws IOException {
+        Set<String> sourceKeys = new HashSet<>();
+        String datePrefix = datePrefix(date);
+        for (StoredObject object : store.list(datePrefix)) {
+            if (object.getKey().endsWith(SUFFIX)) {
+                sourceKeys.add(object.getKey().substring(datePrefix.length(), object.getKey().length() - SUFFIX.length()));
+            }
+        }
+        return sourceKeys;
+    }
+
+    @Override
+    public void save(LocalDate date, PartialAggregate partial) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        partial.writeTo(buffer);
+        store.put(objectKey(date, partial.getSourceKey()), buffer.toByteArray());
+    }
+
+    @Override
+    public void delete(LocalDate date, String sourceKey) throws IOException {
+        store.delete(objectKey(date, sourceKey));
+    }
+
+    private String datePrefix(LocalDate date) {
+        return prefix + date.format(SalesKeys.FILE_DATE_FORMAT) + "/";
+    }
+
+    private String objectKey(LocalDate date, String sourceKey) {
+        return datePrefix(date) + sourceKey + SUFFIX;
+    }
+}
@@ -0,0 +1,90 @@
+package fr.emse.worker.Aggregation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fetches and parses source files on a bounded pool, one {@link SalesSummary} per file.
+ * A failing file does not affect the others; its cause is reported in the {@link IngestResult}.
+ * With a concurrency of 1 files are parsed on the calling thread.
+ */
+public class ParallelIngestor implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    public ParallelIngestor(int concurrency) {
+        if (concurrency > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "ingest-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public IngestResult ingest(List<SourceFile> sources, SourceParser parser) {
+        return ingest(sources, parser, SalesSummary::new);
+    }
+
+    /**
+     * Parses each file into a summary from {@code summaryFactory}, e.g. a {@link SpillingSalesSummary}.
+     */
+    public IngestResult ingest(List<SourceFile> sources, SourceParser parser, Supplier<SalesSummary> summaryFactory) {
+        Map<String, SalesSummary> summaries = new LinkedHashMap<>();
+        Map<String, Exception> failures = new LinkedHashMap<>();
+
+        if (executor == null) {
+            for (SourceFile source : sources) {
+                try {
+                    summaries.put(source.getKey(), parse(source, parser, summaryFactory));
+                } catch (Exception e) {
+                    failures.put(source.getKey(), e);
+                }
+            }
+            return new IngestResult(summaries, failures);
+        }
+
+        Map<String, Future<SalesSummary>> tasks = new LinkedHashMap<>();
+        for (SourceFile source : sources) {
+            tasks.put(source.getKey(), executor.submit(() -> parse(source, parser, summaryFactory)));
+        }
+        for (Map.Entry<String, Future<SalesSummary>> task : tasks.entrySet()) {
+            try {
+                summaries.put(task.getKey(), task.getValue().get());
+            } catch (ExecutionException e) {
+                failures.put(task.getKey(), e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (CancellationException e) {
+                failures.put(task.getKey(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tasks.values().forEach(future -> future.cancel(true));
+                failures.put(task.getKey(), e);
+            }
+        }
+        return new IngestResult(summaries, failures);
+    }
+
+    private static SalesSummary parse(SourceFile source, SourceParser parser, Supplier<SalesSummary> summaryFactory) throws Exception {
+        SalesSummary summary = summaryFactory.get();
+        parser.parse(source, summary);
+        return summary;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Aggregate of a single uploaded sales file, tagged with the key and ETag of the
+ * object it was built from so a re-uploaded file replaces it instead of adding to it.
+ */
+public class PartialAggregate {
+
+    private static final int MAGIC = 0x50415254; // "PART"
+    private static final int VERSION = 1;
+
+    private final String sourceKey;
+    private final String sourceETag;
+    private final SalesSummary summary;
+
+    public PartialAggregate(String sourceKey, String sourceETag, SalesSummary summary) {
+        this.sourceKey = sourceKey;
+        this.sourceETag = sourceETag == null ? "" : sourceETag;
+        this.summary = summary;
+    }
+
+    public String getSourceKey() {
+        return sourceKey;
+    }
+
+    public String getSourceETag() {
+        return sourceETag;
+    }
+
+    public SalesSummary getSummary() {
+        return summary;
+    }
+
+    public boolean isBuiltFrom(String eTag) {
+        return eTag != null && !sourceETag.isEmpty() && sourceETag.equals(eTag);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(sourceKey);
+        out.writeUTF(sourceETag);
+        summary.writeTo(out);
+        out.flush();
+    }
+
+    public static PartialAggregate readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a partial aggregate");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported partial aggregate version: " + version);
+        }
+        String sourceKey = in.readUTF();
+        String sourceETag = in.readUTF();
+        return new PartialAggregate(sourceKey, sourceETag, SalesSummary.readFrom(in));
+    }
+}
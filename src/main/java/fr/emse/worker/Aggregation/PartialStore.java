@@ -0,0 +1,26 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+public interface PartialStore {
+
+    /**
+     * Returns the partials stored for the given date, keyed by source object key.
+     */
+    Map<String, PartialAggregate> load(LocalDate date) throws IOException;
+
+    /**
+     * Returns the source keys of the partials stored for the given date, without reading them.
+     */
+    Set<String> sourceKeys(LocalDate date) throws IOException;
+
+    /**
+     * Stores the partial, replacing any previous partial built from the same source key.
+     */
+    void save(LocalDate date, PartialAggregate partial) throws IOException;
+
+    void delete(LocalDate date, String sourceKey) throws IOException;
+}
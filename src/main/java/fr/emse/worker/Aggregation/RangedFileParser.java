@@ -0,0 +1,120 @@
+package fr.emse.worker.Aggregation;
+
+import fr.emse.ColumnarFormat;
+import fr.emse.Zip;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.StoredObject;
+import fr.emse.worker.Metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parses a large plain CSV object as several byte ranges at once, so a single big file is not read by one
+ * thread. Each range is fetched with ranged reads, aligned on lines (a line belongs to the range it starts
+ * in), and aggregated into its own summary; the summaries are merged in range order. Only the first range
+ * skips the header. Compressed and columnar objects cannot be split and are left to the caller.
+ */
+public class RangedFileParser implements AutoCloseable {
+
+    private final ObjectStore store;
+    private final long rangeSize;
+    private final ExecutorService executor;
+    private final ThreadLocal<SalesFileReader> readers = ThreadLocal.withInitial(SalesFileReader::new);
+
+    public RangedFileParser(ObjectStore store, long rangeSize, int concurrency) {
+        this.store = store;
+        this.rangeSize = rangeSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "range-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds the rows of the object to {@code summary} and returns true when it is a plain CSV larger than
+     * one range; returns false, without reading it, otherwise. {@code size} comes from the listing; the
+     * object is only looked up when it is {@link SourceFile#UNKNOWN_SIZE}.
+     */
+    public boolean aggregate(String key, long listedSize, SalesSummary summary, Consumer<String> logger) throws IOException {
+        if (Zip.isCompressed(key, null) || ColumnarFormat.isColumnar(key)) {
+            return false;
+        }
+        long size = listedSize == SourceFile.UNKNOWN_SIZE ? headSize(key) : listedSize;
+        if (size <= rangeSize) {
+            return false;
+        }
+        LineRangeInputStream first = new LineRangeInputStream(store, key, 0, rangeSize, size);
+        if (Zip.isCompressed(key, first.getContentEncoding())) {
+            first.close();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        List<Future<SalesSummary>> ranges = new ArrayList<>();
+        try {
+            ranges.add(executor.submit(() -> aggregateRange(key, first, true, logger)));
+            for (long from = rangeSize; from < size; from += rangeSize) {
+                long rangeStart = from;
+                long rangeEnd = Math.min(size, from + rangeSize);
+                ranges.add(executor.submit(() -> aggregateRange(key,
+                        new LineRangeInputStream(store, key, rangeStart, rangeEnd, size), false, logger)));
+            }
+            for (Future<SalesSummary> range : ranges) {
+                summary.merge(range.get());
+            }
+            Metrics.counter(Metrics.FILES_PROCESSED).increment();
+        } catch (ExecutionException e) {
+            Metrics.counter(Metrics.FILES_FAILED).increment();
+            ranges.forEach(range -> range.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Error parsing " + key, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ranges.forEach(range -> range.cancel(true));
+            throw new InterruptedIOException("Interrupted while parsing " + key);
+        } finally {
+            Metrics.histogram(Metrics.FILE_PROCESSING).recordSince(start);
+        }
+        return true;
+    }
+
+    private long headSize(String key) throws IOException {
+        StoredObject object = store.head(key);
+        if (object == null) {
+            throw new NoSuchFileException(key);
+        }
+        return object.getSize();
+    }
+
+    private SalesSummary aggregateRange(String key, LineRangeInputStream in, boolean firstRange, Consumer<String> logger) throws IOException {
+        SalesSummary summary = new SalesSummary();
+        try (LineRangeInputStream range = in) {
+            readers.get().aggregateRange(key, range, firstRange, summary, logger);
+        }
+        return summary;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,10 @@
+package fr.emse.worker.Aggregation;
+
+@FunctionalInterface
+public interface SalesRecordHandler {
+
+    void onRecord(String store, String product, int quantity, double unitPrice, double unitProfit);
+
+    default void onMalformedLine(long lineNumber, String line) {
+    }
+}
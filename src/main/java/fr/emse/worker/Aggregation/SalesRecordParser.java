@@ -0,0 +1,229 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser for the 8-column sales CSV shared by the EC2 and Lambda workers.
+ * Fields may be separated by ',' or ';'. The stream is read in chunks, field boundaries
+ * are found byte by byte and numbers are parsed straight from the buffer, so a well-formed
+ * row does not allocate. Instances keep their buffer and key caches between files and are
+ * not thread-safe.
+ */
+public class SalesRecordParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FIELD_COUNT = 8;
+    private static final int STORE = 1;
+    private static final int PRODUCT = 2;
+    private static final int QUANTITY = 3;
+    private static final int UNIT_PRICE = 4;
+    private static final int UNIT_PROFIT = 6;
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final KeyInterner stores = new KeyInterner();
+    private final KeyInterner products = new KeyInterner();
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    public void parse(InputStream in, SalesRecordHandler handler) throws IOException {
+        parse(in, handler, true);
+    }
+
+    public void parse(InputStream in, SalesRecordHandler handler, boolean skipHeader) throws IOException {
+        boolean header = skipHeader;
+        long lineNumber = 0;
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+            int lineStart = 0;
+            int newline;
+            while ((newline = indexOfNewline(lineStart, length)) >= 0) {
+                lineNumber++;
+                if (header) {
+                    header = false;
+                } else {
+                    parseLine(lineStart, newline, lineNumber, handler);
+                }
+                lineStart = newline + 1;
+            }
+
+            int remaining = length - lineStart;
+            if (lineStart == 0 && remaining == buffer.length) {
+                // A single line longer than the buffer
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+            } else if (remaining > 0) {
+                System.arraycopy(buffer, lineStart, buffer, 0, remaining);
+            }
+            length = remaining;
+        }
+
+        if (length > 0 && !header) {
+            parseLine(0, length, lineNumber + 1, handler);
+        }
+    }
+
+    private int indexOfNewline(int from, int to) {
+        byte[] bytes = buffer;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void parseLine(int start, int end, long lineNumber, SalesRecordHandler handler) {
+        byte[] bytes = buffer;
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+
+        int fields = 0;
+        int fieldFrom = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || bytes[i] == ',' || bytes[i] == ';') {
+                if (fields == FIELD_COUNT) {
+                    malformed(start, end, lineNumber, handler);
+                    return;
+                }
+                fieldStart[fields] = fieldFrom;
+                fieldEnd[fields] = i;
+                fields++;
+                fieldFrom = i + 1;
+            }
+        }
+        if (fields != FIELD_COUNT) {
+            malformed(start, end, lineNumber, handler);
+            return;
+        }
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            trim(field);
+        }
+
+        int quantity;
+        double unitPrice;
+        double unitProfit;
+        try {
+            quantity = parseInt(bytes, fieldStart[QUANTITY], fieldEnd[QUANTITY]);
+            unitPrice = parseDouble(bytes, fieldStart[UNIT_PRICE], fieldEnd[UNIT_PRICE]);
+            unitProfit = parseDouble(bytes, fieldStart[UNIT_PROFIT], fieldEnd[UNIT_PROFIT]);
+        } catch (NumberFormatException e) {
+            malformed(start, end, lineNumber, handler);
+            return;
+        }
+
+        String store = stores.intern(bytes, fieldStart[STORE], fieldEnd[STORE]);
+        String product = products.intern(bytes, fieldStart[PRODUCT], fieldEnd[PRODUCT]);
+        handler.onRecord(store, product, quantity, unitPrice, unitProfit);
+    }
+
+    private void trim(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        while (from < to && (buffer[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (buffer[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        fieldStart[field] = from;
+        fieldEnd[field] = to;
+    }
+
+    private void malformed(int start, int end, long lineNumber, SalesRecordHandler handler) {
+        handler.onMalformedLine(lineNumber, new String(buffer, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    static int parseInt(byte[] bytes, int from, int to) {
+        if (from == to) {
+            throw new NumberFormatException("Empty number");
+        }
+        boolean negative = false;
+        int i = from;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            if (++i == to) {
+                throw new NumberFormatException("Sign without digits");
+            }
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid digit");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Integer overflow");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Integer overflow");
+        }
+        return (int) value;
+    }
+
+    static double parseDouble(byte[] bytes, int from, int to) {
+        if (from == to) {
+            throw new NumberFormatException("Empty number");
+        }
+        boolean negative = false;
+        int i = from;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean digits = false;
+        boolean dot = false;
+        for (; i < to; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa > (Long.MAX_VALUE - 9) / 10) {
+                    return parseDoubleSlow(bytes, from, to);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits = true;
+                if (dot) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                // Exponents and other forms Double.parseDouble accepts
+                return parseDoubleSlow(bytes, from, to);
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("No digits");
+        }
+
+        // Both operands are exact doubles here, so the division is correctly rounded
+        if (mantissa < MAX_EXACT_MANTISSA && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return parseDoubleSlow(bytes, from, to);
+    }
+
+    private static double parseDoubleSlow(byte[] bytes, int from, int to) {
+        return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,157 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Per-store and per-product totals. Each key is looked up once per row and its totals
+ * live in parallel primitive columns indexed by the key's id, so adding a row does not box.
+ */
+public class SalesSummary {
+
+    private final KeyIndex stores = new KeyIndex();
+    private double[] storeProfit = new double[16];
+
+    private KeyIndex products = new KeyIndex();
+    private double[] productProfit = new double[64];
+    private long[] productQuantity = new long[64];
+    private double[] productSold = new double[64];
+
+    public void add(String store, String product, long quantity, double totalProfit, double totalSold) {
+        addStore(store, totalProfit);
+        addProduct(product, totalProfit, quantity, totalSold);
+    }
+
+    public void addStore(String store, double profit) {
+        int id = stores.getOrAdd(store);
+        if (id == storeProfit.length) {
+            storeProfit = Arrays.copyOf(storeProfit, id * 2);
+        }
+        storeProfit[id] += profit;
+    }
+
+    public void addProduct(String product, double profit, long quantity, double sold) {
+        int id = products.getOrAdd(product);
+        if (id == productProfit.length) {
+            productProfit = Arrays.copyOf(productProfit, id * 2);
+            productQuantity = Arrays.copyOf(productQuantity, id * 2);
+            productSold = Arrays.copyOf(productSold, id * 2);
+        }
+        productProfit[id] += profit;
+        productQuantity[id] += quantity;
+        productSold[id] += sold;
+    }
+
+    public void merge(SalesSummary other) {
+        for (int i = 0; i < other.storeCount(); i++) {
+            addStore(other.storeName(i), other.storeProfit[i]);
+        }
+        other.addProductsTo(this);
+    }
+
+    void addProductsTo(SalesSummary target) {
+        for (int i = 0; i < productCount(); i++) {
+            target.addProduct(productName(i), productProfit[i], productQuantity[i], productSold[i]);
+        }
+    }
+
+    public int storeCount() {
+        return stores.size();
+    }
+
+    public String storeName(int index) {
+        return stores.key(index);
+    }
+
+    public double storeProfit(int index) {
+        return storeProfit[index];
+    }
+
+    public int productCount() {
+        return products.size();
+    }
+
+    boolean hasProduct(String product) {
+        return products.indexOf(product) >= 0;
+    }
+
+    public String productName(int index) {
+        return products.key(index);
+    }
+
+    public double productProfit(int index) {
+        return productProfit[index];
+    }
+
+    public long productQuantity(int index) {
+        return productQuantity[index];
+    }
+
+    public double productSold(int index) {
+        return productSold[index];
+    }
+
+    /**
+     * Passes every product with its totals to {@code consumer}, in product name order.
+     */
+    public void forEachProduct(ProductConsumer consumer) throws IOException {
+        // Names are unique: sort them and look their ids up again rather than sorting boxed ids
+        String[] names = new String[productCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = products.key(i);
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            int id = products.indexOf(name);
+            consumer.accept(name, productProfit[id], productQuantity[id], productSold[id]);
+        }
+    }
+
+    /**
+     * Drops the product totals, keeping the store totals.
+     */
+    void clearProducts() {
+        products = new KeyIndex();
+        productProfit = new double[64];
+        productQuantity = new long[64];
+        productSold = new double[64];
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(storeCount());
+        for (int i = 0; i < storeCount(); i++) {
+            out.writeUTF(storeName(i));
+            out.writeDouble(storeProfit[i]);
+        }
+        out.writeInt(productCount());
+        for (int i = 0; i < productCount(); i++) {
+            out.writeUTF(productName(i));
+            out.writeDouble(productProfit[i]);
+            out.writeLong(productQuantity[i]);
+            out.writeDouble(productSold[i]);
+        }
+    }
+
+    static SalesSummary readFrom(DataInputStream in) throws IOException {
+        SalesSummary summary = new SalesSummary();
+        int stores = in.readInt();
+        for (int i = 0; i < stores; i++) {
+            summary.addStore(in.readUTF(), in.readDouble());
+        }
+        int products = in.readInt();
+        for (int i = 0; i < products; i++) {
+            String product = in.readUTF();
+            double profit = in.readDouble();
+            long quantity = in.readLong();
+            summary.addProduct(product, profit, quantity, in.readDouble());
+        }
+        return summary;
+    }
+
+    @FunctionalInterface
+    public interface ProductConsumer {
+        void accept(String product, double profit, long quantity, double sold) throws IOException;
+    }
+}
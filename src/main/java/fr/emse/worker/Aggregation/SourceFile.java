@@ -0,0 +1,42 @@
+package fr.emse.worker.Aggregation;
+
+public class SourceFile {
+
+    public static final long UNKNOWN_SIZE = -1;
+
+    private final String key;
+    private final String eTag;
+    private final long size;
+
+    public SourceFile(String key, String eTag) {
+        this(key, eTag, UNKNOWN_SIZE);
+    }
+
+    /**
+     * @param size the object's size in bytes, as listed, or {@link #UNKNOWN_SIZE}
+     */
+    public SourceFile(String key, String eTag, long size) {
+        this.key = key;
+        this.eTag = normalizeETag(eTag);
+        this.size = size;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Listings return ETags quoted, event notifications do not.
+     */
+    static String normalizeETag(String eTag) {
+        return eTag == null ? null : eTag.replace("\"", "");
+    }
+}
@@ -0,0 +1,9 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface SourceParser {
+
+    void parse(SourceFile source, SalesSummary summary) throws IOException;
+}
@@ -0,0 +1,36 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temporary directory for the run files of one aggregation, deleted with its content when closed.
+ */
+public class SpillDirectory implements AutoCloseable {
+
+    private final Path path;
+
+    private SpillDirectory(Path path) {
+        this.path = path;
+    }
+
+    public static SpillDirectory create(Path parent) throws IOException {
+        return new SpillDirectory(Files.createTempDirectory(Files.createDirectories(parent), "spill-"));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,162 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * File of product totals sorted by product name, written by {@link SpillingSalesSummary} each time its
+ * table is full, and the k-way merge that reads runs back in name order. A product can be in several runs,
+ * and several times in a run; its entries are added up in run order, then in the order they were written.
+ */
+final class SpillRun {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Runs open at once; more are merged a prefix at a time
+    private static final int MAX_FAN_IN = 64;
+
+    private SpillRun() {
+    }
+
+    static Path create(Path directory) throws IOException {
+        return Files.createTempFile(directory, "products", ".run");
+    }
+
+    /**
+     * Passes each product of the runs, with its entries added up, to {@code consumer} in name order.
+     */
+    static void merge(List<Path> runs, Path directory, SalesSummary.ProductConsumer consumer) throws IOException {
+        List<Path> pending = new ArrayList<>(runs);
+        List<Path> prefixes = new ArrayList<>();
+        try {
+            while (pending.size() > MAX_FAN_IN) {
+                Path prefix = create(directory);
+                prefixes.add(prefix);
+                try (Writer writer = new Writer(prefix)) {
+                    merge(pending.subList(0, MAX_FAN_IN), writer);
+                }
+                // The merged prefix holds the earliest entries, so it stays first
+                List<Path> rest = new ArrayList<>(pending.subList(MAX_FAN_IN, pending.size()));
+                rest.add(0, prefix);
+                pending = rest;
+            }
+            merge(pending, consumer);
+        } finally {
+            for (Path prefix : prefixes) {
+                Files.deleteIfExists(prefix);
+            }
+        }
+    }
+
+    private static void merge(List<Path> runs, SalesSummary.ProductConsumer consumer) throws IOException {
+        // Ties go to the earlier run, so the entries of a product come out in the order they are added up
+        PriorityQueue<Reader> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.comparing((Reader reader) -> reader.product).thenComparingInt(reader -> reader.index));
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                Reader reader = new Reader(runs.get(i), i);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            String product = null;
+            double profit = 0;
+            long quantity = 0;
+            double sold = 0;
+            while (!queue.isEmpty()) {
+                Reader reader = queue.poll();
+                if (!reader.product.equals(product)) {
+                    if (product != null) {
+                        consumer.accept(product, profit, quantity, sold);
+                    }
+                    product = reader.product;
+                    profit = 0;
+                    quantity = 0;
+                    sold = 0;
+                }
+                // Summed from zero like a SalesSummary column
+                profit += reader.profit;
+                quantity += reader.quantity;
+                sold += reader.sold;
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            if (product != null) {
+                consumer.accept(product, profit, quantity, sold);
+            }
+        } finally {
+            for (Reader reader : queue) {
+                reader.close();
+            }
+        }
+    }
+
+    static final class Writer implements SalesSummary.ProductConsumer, Closeable {
+
+        private final DataOutputStream out;
+
+        Writer(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+        }
+
+        @Override
+        public void accept(String product, double profit, long quantity, double sold) throws IOException {
+            out.writeBoolean(true);
+            out.writeUTF(product);
+            out.writeDouble(profit);
+            out.writeLong(quantity);
+            out.writeDouble(sold);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+        }
+    }
+
+    private static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final int index;
+        private String product;
+        private double profit;
+        private long quantity;
+        private double sold;
+
+        private Reader(Path file, int index) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        private boolean next() throws IOException {
+            if (!in.readBoolean()) {
+                return false;
+            }
+            product = in.readUTF();
+            profit = in.readDouble();
+            quantity = in.readLong();
+            sold = in.readDouble();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
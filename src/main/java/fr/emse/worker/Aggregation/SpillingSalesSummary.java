@@ -0,0 +1,188 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link SalesSummary} with a bounded product table. Products are summed in memory; each time the table
+ * reaches {@code maxProducts} entries it is written out as a run sorted by product name ({@link SpillRun})
+ * and emptied. Store totals stay in memory. When the products are read back ({@link #forEachProduct}, so
+ * when the summary is written), the runs are merged in a single streaming pass and the entries of a product
+ * are added up in the order they were made.
+ * <p>
+ * A product that is already in a run cannot go on being summed in the table: its total would restart from
+ * zero and be a different sequence of floating-point additions. Such an addition is kept as a separate term
+ * instead, which takes a table entry of its own, and products never spilled are summed as usual. Which
+ * products were spilled is tracked by a Bloom filter, so a false positive only costs a term, and every total,
+ * like the written file, is the same as in memory. {@link #productCount()} and the indexed getters only cover
+ * products summed since the last run.
+ */
+public class SpillingSalesSummary extends SalesSummary {
+
+    // Filter bits per product of the table; it fills up, and lets more additions through as terms, after
+    // several times maxProducts distinct products have been spilled
+    private static final int FILTER_BITS_PER_PRODUCT = 16;
+    private static final int MIN_FILTER_BITS = 1 << 16;
+    // 8 MB of filter at most
+    private static final int MAX_FILTER_PRODUCTS = 1 << 22;
+
+    private final Path directory;
+    private final int maxProducts;
+    private final List<Path> runs = new ArrayList<>();
+    private long[] spilled;
+
+    // Additions to spilled products since the last run, in the order they were made
+    private String[] termProducts = new String[16];
+    private double[] termProfit = new double[16];
+    private long[] termQuantity = new long[16];
+    private double[] termSold = new double[16];
+    private int termCount;
+
+    /**
+     * @param directory where run files are created; they are not deleted with the summary, so use a
+     *                  directory that is removed once the summary has been written
+     */
+    public SpillingSalesSummary(Path directory, int maxProducts) {
+        this.directory = directory;
+        this.maxProducts = Math.max(1, maxProducts);
+    }
+
+    @Override
+    public void addProduct(String product, double profit, long quantity, double sold) {
+        // An entry of the table was created after the last run that could hold the product, so it carries on
+        if (spilled == null || hasProduct(product) || !mightBeSpilled(product)) {
+            super.addProduct(product, profit, quantity, sold);
+        } else {
+            addTerm(product, profit, quantity, sold);
+        }
+        if (productCount() + termCount >= maxProducts) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error spilling products to " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the products still in memory as a run, so the summary holds only its store totals while it waits
+     * to be merged.
+     */
+    public void finish() throws IOException {
+        spill();
+    }
+
+    public boolean isSpilled() {
+        return !runs.isEmpty();
+    }
+
+    @Override
+    void addProductsTo(SalesSummary target) {
+        try {
+            forEachProduct(target::addProduct);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void forEachProduct(ProductConsumer consumer) throws IOException {
+        if (runs.isEmpty()) {
+            super.forEachProduct(consumer);
+            return;
+        }
+        spill();
+        SpillRun.merge(runs, directory, consumer);
+    }
+
+    private void addTerm(String product, double profit, long quantity, double sold) {
+        if (termCount == termProducts.length) {
+            int length = termCount * 2;
+            termProducts = Arrays.copyOf(termProducts, length);
+            termProfit = Arrays.copyOf(termProfit, length);
+            termQuantity = Arrays.copyOf(termQuantity, length);
+            termSold = Arrays.copyOf(termSold, length);
+        }
+        termProducts[termCount] = product;
+        termProfit[termCount] = profit;
+        termQuantity[termCount] = quantity;
+        termSold[termCount] = sold;
+        termCount++;
+    }
+
+    /**
+     * Writes the table and the terms as one run and empties both. A product is either in the table or in
+     * terms, never both.
+     */
+    private void spill() throws IOException {
+        if (productCount() == 0 && termCount == 0) {
+            return;
+        }
+        if (spilled == null) {
+            int bits = Math.max(MIN_FILTER_BITS, Integer.highestOneBit(Math.min(maxProducts, MAX_FILTER_PRODUCTS)) * FILTER_BITS_PER_PRODUCT);
+            spilled = new long[bits / 64];
+        }
+        // Sorting is stable, so the terms of a product stay in the order they were made
+        Integer[] order = new Integer[termCount];
+        for (int i = 0; i < termCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> termProducts[a].compareTo(termProducts[b]));
+
+        Path run = SpillRun.create(directory);
+        runs.add(run);
+        try (SpillRun.Writer writer = new SpillRun.Writer(run)) {
+            int[] next = {0};
+            super.forEachProduct((product, profit, quantity, sold) -> {
+                writeTermsBefore(product, order, next, writer);
+                writer.accept(product, profit, quantity, sold);
+                markSpilled(product);
+            });
+            writeTermsBefore(null, order, next, writer);
+        }
+        clearProducts();
+        Arrays.fill(termProducts, 0, termCount, null);
+        termCount = 0;
+    }
+
+    /**
+     * Writes the sorted terms that come before {@code product}, or all that are left when it is null.
+     */
+    private void writeTermsBefore(String product, Integer[] order, int[] next, SpillRun.Writer writer) throws IOException {
+        while (next[0] < order.length && (product == null || termProducts[order[next[0]]].compareTo(product) < 0)) {
+            int term = order[next[0]++];
+            writer.accept(termProducts[term], termProfit[term], termQuantity[term], termSold[term]);
+        }
+    }
+
+    private void markSpilled(String product) {
+        int hash = product.hashCode();
+        for (int i = 0; i < 3; i++) {
+            int bit = filterBit(hash, i);
+            spilled[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean mightBeSpilled(String product) {
+        int hash = product.hashCode();
+        for (int i = 0; i < 3; i++) {
+            int bit = filterBit(hash, i);
+            if ((spilled[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int filterBit(int hash, int probe) {
+        int h = (hash + probe * 0x9E3779B9) * 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & (spilled.length * 64 - 1);
+    }
+}
@@ -0,0 +1,60 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a daily summary CSV written by {@link SummaryWriter} back into a {@link SalesSummary}.
+ * Numbers are taken from the end of each line, so names containing ';' are kept whole.
+ */
+public final class SummaryReader {
+
+    private SummaryReader() {
+    }
+
+    public static SalesSummary read(InputStream in) throws IOException {
+        SalesSummary summary = new SalesSummary();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        boolean products = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.equals("Store Name;Total Profit") || line.startsWith("Product Name;")) {
+                continue;
+            }
+            if (line.equals("By Store")) {
+                products = false;
+            } else if (line.equals("By Product")) {
+                products = true;
+            } else {
+                try {
+                    if (products) {
+                        int sold = line.lastIndexOf(';');
+                        int quantity = line.lastIndexOf(';', sold - 1);
+                        int profit = line.lastIndexOf(';', quantity - 1);
+                        summary.addProduct(line.substring(0, profit),
+                                Double.parseDouble(line.substring(profit + 1, quantity)),
+                                parseQuantity(line.substring(quantity + 1, sold)),
+                                Double.parseDouble(line.substring(sold + 1)));
+                    } else {
+                        int profit = line.lastIndexOf(';');
+                        summary.addStore(line.substring(0, profit), Double.parseDouble(line.substring(profit + 1)));
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException("Malformed summary line: " + line, e);
+                }
+            }
+        }
+        return summary;
+    }
+
+    private static long parseQuantity(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(value);
+        }
+    }
+}
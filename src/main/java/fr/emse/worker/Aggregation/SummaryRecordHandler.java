@@ -0,0 +1,46 @@
+package fr.emse.worker.Aggregation;
+
+import java.util.function.Consumer;
+
+/**
+ * Feeds parsed rows into a {@link SalesSummary}, the same way the workers used to aggregate split lines.
+ * Malformed rows are all counted but only a sample is logged: the first few of each file, then one in
+ * {@value #MALFORMED_LOG_INTERVAL}, so a broken file does not flood the logs or slow parsing down.
+ */
+public class SummaryRecordHandler implements SalesRecordHandler {
+
+    private static final int MALFORMED_LOG_FIRST = 5;
+    private static final int MALFORMED_LOG_INTERVAL = 1000;
+
+    private final SalesSummary summary;
+    private final Consumer<String> logger;
+    private long rows;
+    private long rejected;
+
+    public SummaryRecordHandler(SalesSummary summary, Consumer<String> logger) {
+        this.summary = summary;
+        this.logger = logger;
+    }
+
+    @Override
+    public void onRecord(String store, String product, int quantity, double unitPrice, double unitProfit) {
+        rows++;
+        summary.add(store, product, quantity, unitProfit * quantity, unitPrice * quantity);
+    }
+
+    @Override
+    public void onMalformedLine(long lineNumber, String line) {
+        rejected++;
+        if (rejected <= MALFORMED_LOG_FIRST || rejected % MALFORMED_LOG_INTERVAL == 0) {
+            logger.accept("Unexpected format at line: " + line + " (line " + lineNumber + ", " + rejected + " malformed so far)");
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,140 @@
+package fr.emse.worker.Aggregation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a {@link SalesSummary} as the daily summary CSV straight into a stream: stores in the order
+ * they were first seen, products by name, so that a summary spilled to disk ({@link SpillingSalesSummary})
+ * is written exactly like one kept in memory. Lines are encoded into a reused byte buffer; doubles go
+ * through a reused {@link StringBuilder}, so they are printed exactly like {@link Double#toString(double)}
+ * without a String per value.
+ */
+public class SummaryWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Longest line fragment written without checking for room: a double or a long
+    private static final int NUMBER_ROOM = 32;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final StringBuilder number = new StringBuilder(NUMBER_ROOM);
+    private int position;
+    private long written;
+
+    public SummaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public static long write(SalesSummary summary, OutputStream out) throws IOException {
+        SummaryWriter writer = new SummaryWriter(out);
+        writer.write(summary);
+        return writer.written;
+    }
+
+    public void write(SalesSummary summary) throws IOException {
+        text("By Store\n");
+        text("Store Name;Total Profit\n");
+        for (int i = 0; i < summary.storeCount(); i++) {
+            text(summary.storeName(i));
+            separator();
+            number(summary.storeProfit(i));
+            newLine();
+        }
+        newLine();
+
+        text("By Product\n");
+        text("Product Name;Total Profit;Total Quantity;Total Sold\n");
+        summary.forEachProduct(this::product);
+        flush();
+    }
+
+    private void product(String name, double profit, long quantity, double sold) throws IOException {
+        text(name);
+        separator();
+        number(profit);
+        separator();
+        number(quantity);
+        separator();
+        number(sold);
+        newLine();
+    }
+
+    private void text(String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Rare non-ASCII names are encoded in one go
+                bytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void bytes(byte[] value) throws IOException {
+        if (value.length > buffer.length - position) {
+            drain();
+            if (value.length > buffer.length) {
+                out.write(value);
+                written += value.length;
+                return;
+            }
+        }
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    private void number(double value) throws IOException {
+        number.setLength(0);
+        number.append(value);
+        ascii(number);
+    }
+
+    private void number(long value) throws IOException {
+        number.setLength(0);
+        number.append(value);
+        ascii(number);
+    }
+
+    private void ascii(CharSequence chars) throws IOException {
+        if (buffer.length - position < NUMBER_ROOM) {
+            drain();
+        }
+        for (int i = 0; i < chars.length(); i++) {
+            buffer[position++] = (byte) chars.charAt(i);
+        }
+    }
+
+    private void separator() throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = ';';
+    }
+
+    private void newLine() throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = '\n';
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, position);
+        written += position;
+        position = 0;
+    }
+
+    private void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+}
@@ -1,189 +1,416 @@
 package fr.emse.worker.EC2;
 
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
 import software.amazon.awssdk.services.sqs.model.Message;
+import fr.emse.SalesKeys;
+import fr.emse.storage.AbortableOutputStream;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.S3ObjectStore;
+import fr.emse.storage.Storage;
+import fr.emse.worker.Aggregation.IncrementalAggregator;
+import fr.emse.worker.Aggregation.IngestException;
+import fr.emse.worker.Aggregation.IngestResult;
+import fr.emse.worker.Aggregation.ObjectDiscovery;
+import fr.emse.worker.Aggregation.ParallelIngestor;
+import fr.emse.worker.Aggregation.PartialAggregate;
+import fr.emse.worker.Aggregation.PartialStore;
+import fr.emse.worker.Aggregation.RangedFileParser;
+import fr.emse.worker.Aggregation.SalesFileReader;
+import fr.emse.worker.Aggregation.SalesSummary;
+import fr.emse.worker.Aggregation.SourceFile;
+import fr.emse.worker.Aggregation.SpillDirectory;
+import fr.emse.worker.Aggregation.SpillingSalesSummary;
+import fr.emse.worker.Aggregation.SummaryWriter;
+import fr.emse.worker.Metrics.Metrics;
+import fr.emse.worker.Metrics.MetricsHttpServer;
+import fr.emse.worker.Metrics.MetricsInterceptor;
+import fr.emse.worker.SQS.MessageConsumer;
+import fr.emse.worker.SQS.MessageQueue;
 import fr.emse.worker.SQS.ReadMessage;
+import fr.emse.worker.WorkerConfig;
 
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class EC2Worker {
 
-    private static final String BUCKET_NAME = "clientbucket13"; // Replace with your actual bucket name
+    static final String BUCKET_NAME = "clientbucket13"; // Replace with your actual bucket name
     private static final String SQS_QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/240971291223/messaging-app-queue"; // Replace with your actual queue URL
-    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-    private final S3Client s3Client = S3Client.builder().build();
-    private final SqsClient sqsClient = SqsClient.builder().build();
+    static final String SUMMARY_BUCKET_NAME = "mybucket1308";
+    private final ObjectStore uploads;
+    private final ObjectStore summaries;
+    private final MessageQueue queue;
+    private final ThreadLocal<SalesFileReader> reader = ThreadLocal.withInitial(SalesFileReader::new);
+    private final int ingestConcurrency = WorkerConfig.getInt(WorkerConfig.INGEST_CONCURRENCY, 8);
+    private final ParallelIngestor ingestor = new ParallelIngestor(ingestConcurrency);
+    private final IncrementalAggregator incrementalAggregator;
+    private final PartialStore shardPartials;
+    private final RangedFileParser rangedParser;
+    private final ObjectDiscovery discovery;
+    private final SummaryLease summaryLease;
+
+    /**
+     * @param uploads the uploaded sales files
+     * @param summaries where summaries, partials and leases are written
+     * @param queue the queue the worker consumes, where shard tasks are sent
+     */
+    public EC2Worker(ObjectStore uploads, ObjectStore summaries, MessageQueue queue) {
+        this.uploads = uploads;
+        this.summaries = summaries;
+        this.queue = queue;
+        this.incrementalAggregator = new IncrementalAggregator(WorkerConfig.partialStore(summaries), ingestor, System.out::println);
+        this.shardPartials = WorkerConfig.shardStore(summaries);
+        int splitSize = WorkerConfig.getInt(WorkerConfig.SPLIT_SIZE, 64);
+        this.rangedParser = splitSize > 0
+                ? new RangedFileParser(uploads, splitSize * 1024L * 1024L,
+                        WorkerConfig.getInt(WorkerConfig.SPLIT_CONCURRENCY, Runtime.getRuntime().availableProcessors()))
+                : null;
+        this.discovery = new ObjectDiscovery(uploads, WorkerConfig.getInt(WorkerConfig.DISCOVERY_CACHE_TTL, 0) * 1000L);
+        this.summaryLease = WorkerConfig.getInt(WorkerConfig.SUMMARY_LEASE_TTL, 300) > 0
+                ? new SummaryLease(summaries, WorkerConfig.getInt(WorkerConfig.SUMMARY_LEASE_TTL, 300) * 1000L)
+                : null;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (Storage.isLocal()) {
+            // Messages only come from SQS; LocalPipeline feeds local uploads to the same worker code
+            System.out.println("EC2Worker reads from S3 and SQS; replay local uploads with LocalPipeline instead");
+            return;
+        }
+        int metricsPort = WorkerConfig.getInt(WorkerConfig.METRICS_PORT, 9404);
+        if (metricsPort > 0) {
+            try {
+                MetricsHttpServer.start(metricsPort);
+                System.out.println("Metrics available at http://localhost:" + metricsPort + "/metrics");
+            } catch (IOException e) {
+                System.out.println("Metrics endpoint not started: " + e.getMessage());
+            }
+        }
 
-    public static void main(String[] args) {
-        EC2Worker app = new EC2Worker();
+        S3Client s3Client = S3Client.builder()
+                .overrideConfiguration(config -> config.addExecutionInterceptor(new MetricsInterceptor()))
+                .build();
         ReadMessage sqsReader = new ReadMessage(SQS_QUEUE_URL);
+        EC2Worker app = new EC2Worker(new S3ObjectStore(s3Client, BUCKET_NAME),
+                new S3ObjectStore(s3Client, SUMMARY_BUCKET_NAME, WorkerConfig.getInt(WorkerConfig.SUMMARY_PART_SIZE, 8) * 1024 * 1024),
+                sqsReader);
+        MessageConsumer consumer = new MessageConsumer(sqsReader, EC2Worker::messageKey, app::handleMessages,
+                WorkerConfig.getInt(WorkerConfig.SQS_POLLERS, 2),
+                WorkerConfig.getInt(WorkerConfig.SQS_WORKERS, 4),
+                WorkerConfig.getInt(WorkerConfig.SQS_QUEUE_CAPACITY, 40),
+                WorkerConfig.getInt(WorkerConfig.SQS_VISIBILITY_TIMEOUT, 60),
+                WorkerConfig.getInt(WorkerConfig.SQS_COALESCE_WINDOW, 2000));
+        Runtime.getRuntime().addShutdownHook(new Thread(consumer::close));
 
         System.out.println("Starting to poll for messages...");
+        consumer.start();
+        Thread.currentThread().join();
+    }
 
-        while (true) {
-            List<Message> messages = sqsReader.receiveMessages();
-            if (messages.isEmpty()) {
-                System.out.println("No new messages in the queue.");
-            } else {
-                System.out.println("Received " + messages.size() + " messages. Processing...");
-            }
-
-            for (Message message : messages) {
-                try {
-                    String messageBody = message.body();
-                    System.out.println("Processing message: " + messageBody);
-
-                    int startIndex = messageBody.indexOf(':') + 2;
-                    int endIndex = messageBody.lastIndexOf('-');
-                    if (startIndex < 0 || endIndex < 0 || endIndex <= startIndex) {
-                        System.out.println("Invalid message format: " + messageBody);
-                        continue; // Skip this message
-                    }
-
-
-                    LocalDate processDate;
-                    try {
-                        String dateString = messageBody.substring(startIndex, endIndex).trim();
-                        processDate = LocalDate.parse(dateString, FILE_DATE_FORMAT);
-                        System.out.println("Processing date: " + processDate);
-                    } catch (DateTimeParseException e) {
-                        System.out.println("Error parsing date from message, using today's date: " + message.body());
-                        e.printStackTrace();
-                        continue;
-                    }
-
-
-                    app.processFiles(BUCKET_NAME, processDate);
-
-                    app.deleteMessageFromQueue(message);
-                    System.out.println("Message processed and deleted from the queue.");
-                } catch (DateTimeParseException e) {
-                    System.out.println("Error parsing date from message: " + message.body());
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * Key messages are grouped by: the date of the uploaded file named in the message body, or the shard of a
+     * shard task; null if the body has neither.
+     */
+    static String messageKey(Message message) {
+        ShardTask task = ShardTask.parse(message.body());
+        if (task != null) {
+            return task.key();
+        }
+        LocalDate date = SalesKeys.dateOf(message.body());
+        if (date == null) {
+            System.out.println("Invalid message format: " + message.body());
+            return null;
+        }
+        return date.format(SalesKeys.FILE_DATE_FORMAT);
+    }
 
-            try {
-                Thread.sleep(10000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    /**
+     * Object keys named by the messages ("...: <key>"), for the discovery manifest.
+     */
+    private static Map<String, String> notifiedKeys(LocalDate processDate, List<Message> messages) {
+        Map<String, String> keys = new HashMap<>();
+        String prefix = SalesKeys.listPrefix(processDate);
+        for (Message message : messages) {
+            String key = message.body().substring(message.body().indexOf(':') + 1).trim();
+            if (key.startsWith(prefix)) {
+                keys.put(key, null);
             }
         }
+        return keys;
     }
 
+    boolean handleMessages(String messageKey, List<Message> messages) throws IOException, InterruptedException {
+        if (messageKey == null) {
+            return false;
+        }
+        if (messageKey.startsWith(ShardTask.KEY_PREFIX)) {
+            return handleShard(ShardTask.parse(messages.get(0).body()));
+        }
+        LocalDate processDate = LocalDate.parse(messageKey, SalesKeys.FILE_DATE_FORMAT);
+        System.out.println("Processing date " + processDate + " for " + messages.size() + " message(s)");
+
+        SummaryLease.Held lease = null;
+        if (summaryLease != null) {
+            lease = summaryLease.tryAcquire(processDate);
+            if (lease == null) {
+                System.out.println("Summary for " + processDate + " is being built by another instance, messages will be retried");
+                return false;
+            }
+        }
 
-    private void deleteMessageFromQueue(Message message) {
-        DeleteMessageRequest deleteRequest = DeleteMessageRequest.builder()
-                .queueUrl(SQS_QUEUE_URL)
-                .receiptHandle(message.receiptHandle())
-                .build();
-        sqsClient.deleteMessage(deleteRequest);
+        long start = System.nanoTime();
+        try {
+            if (!processFiles(processDate, notifiedKeys(processDate, messages))) {
+                System.out.println("Messages left in the queue to be retried for " + processDate);
+                return false;
+            }
+        } finally {
+            Metrics.histogram(Metrics.DATE_PROCESSING).recordSince(start);
+            if (lease != null) {
+                lease.close();
+            }
+        }
+        System.out.println("Messages processed, queued for deletion.");
+        return true;
     }
 
-    private void processFiles(String bucketName, LocalDate processDate) {
-        ListObjectsV2Request listRequest = ListObjectsV2Request.builder().bucket(bucketName).build();
-        ListObjectsV2Iterable listResponse = s3Client.listObjectsV2Paginator(listRequest);
+    /**
+     * Rebuilds the summary of the date from the files under its prefix. Returns false, without writing a
+     * summary, when any of the date's files could not be processed, so the triggering messages are retried.
+     */
+    private boolean processFiles(LocalDate processDate, Map<String, String> notifiedKeys) {
+        List<SourceFile> sources;
+        try {
+            sources = discovery.discover(processDate, notifiedKeys);
+        } catch (IOException e) {
+            System.out.println("Error listing files for " + processDate + " - " + e.getMessage());
+            return false;
+        }
+        System.out.println("Processing " + sources.size() + " file(s) for " + processDate);
+
+        SalesSummary summary;
+        if (WorkerConfig.isIncremental()) {
+            try {
+                summary = incrementalAggregator.aggregate(processDate, sources, (source, partial) -> processFile(source, partial));
+            } catch (IngestException e) {
+                reportFailures(processDate, e.getFailures());
+                return false;
+            } catch (IOException e) {
+                System.out.println("Error merging partial aggregates for " + processDate + " - " + e.getMessage());
+                return false;
+            }
+        } else if (WorkerConfig.isSharded()) {
+            return planShards(processDate, sources);
+        } else if (WorkerConfig.maxProducts() > 0) {
+            return processFilesSpilling(processDate, sources);
+        } else {
+            IngestResult result = ingestor.ingest(sources, (source, partial) -> processFile(source, partial));
+            if (!result.isComplete()) {
+                reportFailures(processDate, result.getFailures());
+                return false;
+            }
+            summary = result.merged();
+        }
 
-        Map<String, Double> totalProfitByStore = new HashMap<>();
-        Map<String, Double> totalProfitByProduct = new HashMap<>();
-        Map<String, Integer> totalQuantityByProduct = new HashMap<>();
-        Map<String, Double> totalSoldByProduct = new HashMap<>();
+        saveToCsv(summaryName(processDate), summary);
+        return true;
+    }
 
-        for (S3Object s3Object : listResponse.contents()) {
-            if (s3Object.key().contains(processDate.format(FILE_DATE_FORMAT))) {
-                System.out.println("Processing file: " + s3Object.key());
-                processFile(bucketName, s3Object.key(), totalProfitByStore, totalProfitByProduct, totalQuantityByProduct, totalSoldByProduct);
+    /**
+     * Full aggregation holding at most {@code WORKER_AGGREGATION_MAX_PRODUCTS} products in memory, shared
+     * between the files parsed at once; the others are spilled to disk and summed while writing. Parsed files
+     * keep their products in memory while they wait to be merged, as long as they hold no more than the limit
+     * between them; a file that would go over it is spilled.
+     */
+    private boolean processFilesSpilling(LocalDate processDate, List<SourceFile> sources) {
+        int maxProducts = WorkerConfig.maxProducts();
+        try (SpillDirectory spill = SpillDirectory.create(WorkerConfig.spillParent())) {
+            Path directory = spill.getPath();
+            AtomicLong waitingProducts = new AtomicLong();
+            IngestResult result = ingestor.ingest(sources, (source, partial) -> {
+                processFile(source, partial);
+                long products = partial.productCount();
+                if (waitingProducts.addAndGet(products) > maxProducts) {
+                    waitingProducts.addAndGet(-products);
+                    ((SpillingSalesSummary) partial).finish();
+                }
+            }, () -> new SpillingSalesSummary(directory, maxProducts / ingestConcurrency));
+            if (!result.isComplete()) {
+                reportFailures(processDate, result.getFailures());
+                return false;
             }
+            SpillingSalesSummary summary = new SpillingSalesSummary(directory, maxProducts);
+            result.getSummaries().values().forEach(summary::merge);
+            saveToCsv(summaryName(processDate), summary);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error spilling products for " + processDate + " - " + e.getMessage());
+            return false;
         }
+    }
 
-        saveToCsv("mybucket1308", "summary-" + processDate.format(FILE_DATE_FORMAT) + ".csv", totalProfitByStore, totalProfitByProduct, totalQuantityByProduct, totalSoldByProduct);
+    /**
+     * Replaces the date's shard plan with a new job and sends one task per shard to the queue. Shards can
+     * run on any instance; each stores its partial, and the instance that stores the last one writes the summary.
+     */
+    private boolean planShards(LocalDate processDate, List<SourceFile> sources) {
+        ShardPlan plan = ShardPlan.create(sources, Math.max(1, WorkerConfig.getInt(WorkerConfig.SHARD_FILES, 1)));
+        try {
+            // Partials of a superseded job would never be merged
+            for (String sourceKey : shardPartials.sourceKeys(processDate)) {
+                shardPartials.delete(processDate, sourceKey);
+            }
+            if (plan.shardCount() == 0) {
+                ShardPlan.delete(summaries, processDate);
+                return saveToCsv(summaryName(processDate), new SalesSummary());
+            }
+            plan.save(summaries, processDate);
+        } catch (IOException e) {
+            System.out.println("Error planning shards for " + processDate + " - " + e.getMessage());
+            return false;
+        }
+        try {
+            for (int i = 0; i < plan.shardCount(); i++) {
+                queue.send(new ShardTask(processDate, plan.getJobId(), i, plan.shardCount()).toMessage());
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error sending shard tasks for " + processDate + " - " + e.getMessage());
+            // Without its plan the job's tasks already sent are dropped, and the retried upload messages plan a new one
+            try {
+                ShardPlan current = ShardPlan.load(summaries, processDate);
+                if (current != null && current.getJobId().equals(plan.getJobId())) {
+                    ShardPlan.delete(summaries, processDate);
+                }
+            } catch (IOException deleteError) {
+                System.out.println("Error deleting shard plan for " + processDate + " - " + deleteError.getMessage());
+            }
+            return false;
+        }
+        System.out.println("Sent " + plan.shardCount() + " shard task(s) of job " + plan.getJobId() + " for " + processDate);
+        return true;
     }
 
-    private void processFile(String bucketName, String key, Map<String, Double> totalProfitByStore, Map<String, Double> totalProfitByProduct, Map<String, Integer> totalQuantityByProduct, Map<String, Double> totalSoldByProduct) {
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder().bucket(bucketName).key(key).build();
-        try (ResponseInputStream<GetObjectResponse> s3is = s3Client.getObject(getObjectRequest);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(s3is))) {
+    /**
+     * Aggregates the files of one shard into its partial, unless a copy of the task already did, then writes the
+     * summary if every shard of the job has reported. Tasks of a superseded or finished job are dropped.
+     */
+    boolean handleShard(ShardTask task) throws IOException, InterruptedException {
+        LocalDate processDate = task.getDate();
+        ShardPlan plan = ShardPlan.load(summaries, processDate);
+        if (plan == null || !plan.getJobId().equals(task.getJobId()) || task.getIndex() >= plan.shardCount()) {
+            System.out.println("Dropping shard task of a superseded or finished job: " + task.toMessage());
+            return true;
+        }
 
-            String line;
-            reader.readLine(); // Skip header
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",|;");
+        if (!shardPartials.sourceKeys(processDate).contains(task.partialKey())) {
+            long start = System.nanoTime();
+            IngestResult result = ingestor.ingest(plan.getShard(task.getIndex()), (source, partial) -> processFile(source, partial));
+            Metrics.histogram(Metrics.DATE_PROCESSING).recordSince(start);
+            if (!result.isComplete()) {
+                reportFailures(processDate, result.getFailures());
+                return false;
+            }
+            shardPartials.save(processDate, new PartialAggregate(task.partialKey(), task.getJobId(), result.merged()));
+        }
 
-                if (parts.length != 8) {
-                    System.out.println("Unexpected format at line: " + line);
-                    continue;
+        Set<String> reported = shardPartials.sourceKeys(processDate);
+        for (int i = 0; i < plan.shardCount(); i++) {
+            if (!reported.contains(ShardTask.partialKey(plan.getJobId(), i))) {
+                System.out.println("Shard " + task.getIndex() + "/" + plan.shardCount() + " stored for " + processDate);
+                return true;
+            }
+        }
+        return reduceShards(processDate, plan.getJobId());
+    }
+
+    /**
+     * Merges the partials of every shard of the job, in shard order, into the date's summary.
+     */
+    private boolean reduceShards(LocalDate processDate, String jobId) throws IOException, InterruptedException {
+        SummaryLease.Held lease = null;
+        if (summaryLease != null) {
+            lease = summaryLease.tryAcquire(processDate);
+            if (lease == null) {
+                System.out.println("Summary for " + processDate + " is being built by another instance, shard task will be retried");
+                return false;
+            }
+        }
+        try {
+            // Another instance may have finished, or replanned, the job while the lease was taken
+            ShardPlan plan = ShardPlan.load(summaries, processDate);
+            if (plan == null || !plan.getJobId().equals(jobId)) {
+                return true;
+            }
+            Map<String, PartialAggregate> partials = shardPartials.load(processDate);
+            SalesSummary summary = new SalesSummary();
+            for (int i = 0; i < plan.shardCount(); i++) {
+                PartialAggregate partial = partials.get(ShardTask.partialKey(jobId, i));
+                if (partial == null) {
+                    System.out.println("Partial of shard " + i + " missing for " + processDate + ", shard task will be retried");
+                    return false;
                 }
+                summary.merge(partial.getSummary());
+            }
+            if (!saveToCsv(summaryName(processDate), summary)) {
+                return false;
+            }
+            ShardPlan.delete(summaries, processDate);
+            for (String sourceKey : partials.keySet()) {
+                shardPartials.delete(processDate, sourceKey);
+            }
+            return true;
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    private static String summaryName(LocalDate processDate) {
+        return "summary-" + processDate.format(SalesKeys.FILE_DATE_FORMAT) + ".csv";
+    }
 
-                String store = parts[1].trim();
-                String product = parts[2].trim();
-                int quantity = Integer.parseInt(parts[3].trim());
-                double unitPrice = Double.parseDouble(parts[4].trim());
-                double totalProfit = Double.parseDouble(parts[6].trim()) * quantity;
-                double totalSold = unitPrice * quantity;
+    private void reportFailures(LocalDate processDate, Map<String, Exception> failures) {
+        System.out.println("Summary for " + processDate + " not written, " + failures.size() + " file(s) failed:");
+        failures.forEach((key, e) -> System.out.println("  " + key + " - " + e));
+    }
 
-                totalProfitByStore.merge(store, totalProfit, Double::sum);
-                totalProfitByProduct.merge(product, totalProfit, Double::sum);
-                totalQuantityByProduct.merge(product, quantity, Integer::sum);
-                totalSoldByProduct.merge(product, totalSold, Double::sum);
-            }
-        } catch (IOException e) {
-            System.out.println("Error processing file: " + key + " - " + e.getMessage());
+    private void processFile(SourceFile source, SalesSummary summary) throws IOException {
+        String key = source.getKey();
+        // Range summaries are all held in memory until merged, which a spilling summary is meant to avoid
+        if (rangedParser != null && !(summary instanceof SpillingSalesSummary)
+                && rangedParser.aggregate(key, source.getSize(), summary, System.out::println)) {
+            return;
+        }
+        try (ObjectContent content = uploads.get(key)) {
+            reader.get().aggregate(key, content.getContentEncoding(), content, summary, System.out::println);
         }
     }
 
 
-    private void saveToCsv(String bucketName, String fileName, Map<String, Double> totalProfitByStore, Map<String, Double> totalProfitByProduct, Map<String, Integer> totalQuantityByProduct, Map<String, Double> totalSoldByProduct) {
-        Path tempFile = null;
+    private boolean saveToCsv(String fileName, SalesSummary summary) {
+        AbortableOutputStream out = null;
         try {
-            tempFile = Files.createTempFile(fileName.replace(".csv", ""), ".csv");
-            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tempFile))) {
-                writer.println("By Store");
-                writer.println("Store Name;Total Profit");
-                totalProfitByStore.forEach((store, profit) -> writer.println(store + ";" + profit));
-                writer.println();
-
-                writer.println("By Product");
-                writer.println("Product Name;Total Profit;Total Quantity;Total Sold");
-                totalProfitByProduct.forEach((product, profit) -> {
-                    Double sold = totalSoldByProduct.getOrDefault(product, 0.0);
-                    Integer quantity = totalQuantityByProduct.getOrDefault(product, 0);
-                    writer.println(product + ";" + profit + ";" + quantity + ";" + sold);
-                });
-            }
-
-            // Display file content before uploading
-            System.out.println("Content of the file before uploading:");
-            Files.readAllLines(tempFile).forEach(System.out::println);
-
-            // Proceed with the upload
-            s3Client.putObject(PutObjectRequest.builder().bucket(bucketName).key(fileName).build(), tempFile);
+            out = summaries.create(fileName, "text/csv");
+            long size = SummaryWriter.write(summary, out);
+            out.close();
+            System.out.println("Summary uploaded: " + fileName + " (" + size + " bytes)");
+            return true;
         } catch (IOException e) {
-            System.out.println("Error saving summary file: " + e.getMessage());
-        } finally {
-            if (tempFile != null) {
-                try {
-                    Files.delete(tempFile);
-                } catch (IOException e) {
-                    System.out.println("Error deleting the temporary file: " + e.getMessage());
-                }
+            if (out != null) {
+                out.abort();
             }
+            System.out.println("Error saving summary file: " + e.getMessage());
+            return false;
         }
     }
 
@@ -0,0 +1,91 @@
+package fr.emse.worker.EC2;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.LocalObjectStore;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.StoredObject;
+import fr.emse.worker.Metrics.Histogram;
+import fr.emse.worker.Metrics.Metrics;
+import fr.emse.worker.SQS.InProcessQueue;
+import fr.emse.worker.SQS.MessageConsumer;
+import fr.emse.worker.WorkerConfig;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Replays days of uploads through the EC2 worker without AWS: files are read from a local store,
+ * one upload message per file goes through an {@link InProcessQueue} and the same consumer and
+ * aggregation code as in production, and summaries are written next to the uploads.
+ * <p>
+ * Usage: {@code LocalPipeline <storage root> <dd-MM-yyyy> [<dd-MM-yyyy> ...]}, with the uploads under
+ * {@code <root>/clientbucket13/} and summaries written to {@code <root>/mybucket1308/}. Prints the
+ * throughput at the end, for sizing the instances. Gives up after {@code worker.replay.timeout} seconds
+ * (600 by default) when messages are still not deleted, e.g. because a file keeps failing.
+ */
+public class LocalPipeline {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: LocalPipeline <storage root> <dd-MM-yyyy> [<dd-MM-yyyy> ...]");
+            return;
+        }
+        // A single instance: no lease to wait for
+        if (WorkerConfig.get(WorkerConfig.SUMMARY_LEASE_TTL, null) == null) {
+            System.setProperty(WorkerConfig.SUMMARY_LEASE_TTL, "0");
+        }
+        Path root = Paths.get(args[0]);
+        int visibilityTimeout = WorkerConfig.getInt(WorkerConfig.SQS_VISIBILITY_TIMEOUT, 60);
+        InProcessQueue queue = new InProcessQueue(1000, visibilityTimeout);
+        ObjectStore uploads = new LocalObjectStore(root.resolve(EC2Worker.BUCKET_NAME));
+        EC2Worker worker = new EC2Worker(uploads, new LocalObjectStore(root.resolve(EC2Worker.SUMMARY_BUCKET_NAME)), queue);
+        long files = 0;
+        long bytes = 0;
+        for (int i = 1; i < args.length; i++) {
+            LocalDate date = LocalDate.parse(args[i], SalesKeys.FILE_DATE_FORMAT);
+            List<StoredObject> objects = uploads.list(SalesKeys.listPrefix(date));
+            for (StoredObject object : objects) {
+                queue.send("New file uploaded: " + object.getKey());
+                bytes += object.getSize();
+            }
+            files += objects.size();
+        }
+        System.out.println("Replaying " + files + " file(s), " + bytes / (1024 * 1024) + " MB");
+
+        long start = System.nanoTime();
+        try (MessageConsumer consumer = new MessageConsumer(queue, EC2Worker::messageKey, worker::handleMessages,
+                WorkerConfig.getInt(WorkerConfig.SQS_POLLERS, 2),
+                WorkerConfig.getInt(WorkerConfig.SQS_WORKERS, 4),
+                WorkerConfig.getInt(WorkerConfig.SQS_QUEUE_CAPACITY, 40),
+                visibilityTimeout,
+                WorkerConfig.getInt(WorkerConfig.SQS_COALESCE_WINDOW, 2000))) {
+            consumer.start();
+            // A message whose handler keeps failing is never deleted and comes back after every visibility timeout
+            long deadline = System.nanoTime() + WorkerConfig.getInt(WorkerConfig.REPLAY_TIMEOUT, 600) * 1_000_000_000L;
+            while (queue.size() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            if (queue.size() > 0) {
+                System.out.println("Replay timed out with " + queue.size() + " message(s) still in the queue");
+            }
+        }
+        report(files, bytes, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void report(long files, long bytes, double seconds) {
+        long rows = Metrics.counter(Metrics.ROWS_PARSED).get();
+        System.out.printf("Processed %d file(s), %d rows (%d rejected), %d failed, in %.2f s%n", files, rows,
+                Metrics.counter(Metrics.ROWS_REJECTED).get(), Metrics.counter(Metrics.FILES_FAILED).get(), seconds);
+        System.out.printf("Throughput: %.1f files/s, %.1f MB/s, %.0f rows/s%n",
+                files / seconds, bytes / (1024.0 * 1024.0) / seconds, rows / seconds);
+        for (String name : List.of(Metrics.FILE_PROCESSING, Metrics.DATE_PROCESSING, Metrics.QUEUE_LAG)) {
+            Histogram histogram = Metrics.histogram(name);
+            if (histogram.count() > 0) {
+                System.out.printf("%s: %d, average %.1f ms, max %.1f ms%n", name, histogram.count(),
+                        histogram.sumMillis() / histogram.count(), histogram.maxMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package fr.emse.worker.EC2;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.worker.Aggregation.SourceFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Files of a date split into shards for one sharded aggregation job, stored as {@code shards/<date>/plan}
+ * in the summary bucket: the job id on the first line, then one {@code <shard>\t<ETag>\t<size>\t<key>} line per file.
+ * Planning the date again replaces it, which supersedes the tasks of the previous job.
+ */
+final class ShardPlan {
+
+    private static final String NO_ETAG = "-";
+
+    private final String jobId;
+    private final List<List<SourceFile>> shards;
+
+    private ShardPlan(String jobId, List<List<SourceFile>> shards) {
+        this.jobId = jobId;
+        this.shards = shards;
+    }
+
+    /**
+     * New job over the files, {@code filesPerShard} consecutive files to a shard.
+     */
+    static ShardPlan create(List<SourceFile> sources, int filesPerShard) {
+        List<List<SourceFile>> shards = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i += filesPerShard) {
+            shards.add(new ArrayList<>(sources.subList(i, Math.min(sources.size(), i + filesPerShard))));
+        }
+        return new ShardPlan(UUID.randomUUID().toString(), shards);
+    }
+
+    String getJobId() {
+        return jobId;
+    }
+
+    int shardCount() {
+        return shards.size();
+    }
+
+    List<SourceFile> getShard(int index) {
+        return shards.get(index);
+    }
+
+    void save(ObjectStore store, LocalDate date) throws IOException {
+        StringBuilder text = new StringBuilder(jobId).append('\n');
+        for (int i = 0; i < shards.size(); i++) {
+            for (SourceFile source : shards.get(i)) {
+                text.append(i).append('\t').append(source.getETag() == null ? NO_ETAG : source.getETag())
+                        .append('\t').append(source.getSize())
+                        .append('\t').append(source.getKey()).append('\n');
+            }
+        }
+        store.put(key(date), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The current plan of the date, or null when none is in progress.
+     */
+    static ShardPlan load(ObjectStore store, LocalDate date) throws IOException {
+        String text;
+        try (ObjectContent content = store.get(key(date))) {
+            text = new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String[] lines = text.split("\n");
+        List<List<SourceFile>> shards = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split("\t", 4);
+            if (fields.length < 4) {
+                throw new IOException("Malformed shard plan line for " + date + ": " + lines[i]);
+            }
+            int shard = Integer.parseInt(fields[0]);
+            while (shards.size() <= shard) {
+                shards.add(new ArrayList<>());
+            }
+            shards.get(shard).add(new SourceFile(fields[3], NO_ETAG.equals(fields[1]) ? null : fields[1], Long.parseLong(fields[2])));
+        }
+        return new ShardPlan(lines[0], shards);
+    }
+
+    static void delete(ObjectStore store, LocalDate date) throws IOException {
+        store.delete(key(date));
+    }
+
+    private static String key(LocalDate date) {
+        return "shards/" + date.format(SalesKeys.FILE_DATE_FORMAT) + "/plan";
+    }
+}
@@ -0,0 +1,81 @@
+package fr.emse.worker.EC2;
+
+import fr.emse.SalesKeys;
+
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Queue message asking for one shard of a {@link ShardPlan}: {@code Shard <index>/<count> of job <id> for <dd-MM-yyyy>}.
+ */
+final class ShardTask {
+
+    static final String KEY_PREFIX = "shard:";
+    private static final Pattern MESSAGE = Pattern.compile("^Shard (\\d+)/(\\d+) of job (\\S+) for (\\d{2}-\\d{2}-\\d{4})$");
+
+    private final LocalDate date;
+    private final String jobId;
+    private final int index;
+    private final int count;
+
+    ShardTask(LocalDate date, String jobId, int index, int count) {
+        this.date = date;
+        this.jobId = jobId;
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * The task in the message body, or null when the body is not a shard task.
+     */
+    static ShardTask parse(String body) {
+        Matcher matcher = MESSAGE.matcher(body.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        LocalDate date = SalesKeys.dateOf(matcher.group(4));
+        if (date == null) {
+            return null;
+        }
+        return new ShardTask(date, matcher.group(3), Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    String toMessage() {
+        return "Shard " + index + "/" + count + " of job " + jobId + " for " + SalesKeys.listPrefix(date);
+    }
+
+    /**
+     * Grouping key: copies of the same task are handled together, different shards in parallel.
+     */
+    String key() {
+        return KEY_PREFIX + jobId + ":" + index;
+    }
+
+    /**
+     * Source key of the shard's partial in the shard store.
+     */
+    String partialKey() {
+        return partialKey(jobId, index);
+    }
+
+    static String partialKey(String jobId, int index) {
+        return jobId + "/" + index;
+    }
+
+    LocalDate getDate() {
+        return date;
+    }
+
+    String getJobId() {
+        return jobId;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getCount() {
+        return count;
+    }
+}
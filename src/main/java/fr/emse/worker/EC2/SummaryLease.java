@@ -0,0 +1,144 @@
+package fr.emse.worker.EC2;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.StoredObject;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease on a summary date, shared by all EC2 worker instances and threads through an object in the
+ * summary bucket, so a summary is not rebuilt twice at the same time. The lease object is created only
+ * if there is none, and renewed, taken over once expired, or released only while its ETag is unchanged,
+ * so of two acquisitions racing for the same date exactly one wins. Each acquisition writes its own token.
+ * A lease that is not renewed expires after its time to live.
+ */
+public class SummaryLease {
+
+    private final ObjectStore store;
+    private final long timeToLiveMillis;
+    private final String hostName = hostName();
+    private final ScheduledExecutorService renewals = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "summary-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SummaryLease(ObjectStore store, long timeToLiveMillis) {
+        this.store = store;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Returns a held lease, renewed in the background until closed, or null when it is held by another
+     * instance or by another acquisition of this one.
+     */
+    public Held tryAcquire(LocalDate date) throws IOException {
+        String key = "locks/summary-" + date.format(SalesKeys.FILE_DATE_FORMAT) + ".lock";
+        String token = hostName + "/" + UUID.randomUUID();
+        String eTag = store.putIfAbsent(key, content(token));
+        if (eTag == null) {
+            StoredObject current = store.head(key);
+            // Read after the head: if the lease changes in between, the ETag no longer matches and the takeover fails
+            String lease = current == null ? null : read(key);
+            if (lease == null || !isExpired(lease)) {
+                return null;
+            }
+            eTag = store.putIfMatch(key, content(token), current.getETag());
+            if (eTag == null) {
+                return null;
+            }
+            System.out.println("Lease " + key + " of " + lease + " expired, taken over");
+        }
+        return new Held(key, token, eTag);
+    }
+
+    private String read(String key) throws IOException {
+        try (ObjectContent content = store.get(key)) {
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private byte[] content(String token) {
+        return (token + ";" + (System.currentTimeMillis() + timeToLiveMillis)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isExpired(String content) {
+        try {
+            return Long.parseLong(content.substring(content.lastIndexOf(';') + 1).trim()) < System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+
+    public class Held implements AutoCloseable {
+        private final String key;
+        private final String token;
+        // ETag of the lease object as last written by this acquisition; null once lost or released
+        private String eTag;
+        private final ScheduledFuture<?> renewal;
+
+        private Held(String key, String token, String eTag) {
+            this.key = key;
+            this.token = token;
+            this.eTag = eTag;
+            long renewMillis = Math.max(1000, timeToLiveMillis / 3);
+            this.renewal = renewals.scheduleWithFixedDelay(this::renew, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void renew() {
+            if (eTag == null) {
+                return;
+            }
+            try {
+                String renewed = store.putIfMatch(key, content(token), eTag);
+                if (renewed == null) {
+                    // Once the lease expired and another acquisition took it over, it is theirs: stop renewing
+                    System.out.println("Lease " + key + " was taken over by another instance");
+                    eTag = null;
+                    renewal.cancel(false);
+                    return;
+                }
+                eTag = renewed;
+            } catch (IOException e) {
+                System.out.println("Error renewing lease " + key + " - " + e.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            renewal.cancel(false);
+            if (eTag == null) {
+                return;
+            }
+            try {
+                store.deleteIfMatch(key, eTag);
+            } catch (IOException e) {
+                // The lease expires on its own
+                System.out.println("Error releasing lease " + key + " - " + e.getMessage());
+            }
+            eTag = null;
+        }
+    }
+}
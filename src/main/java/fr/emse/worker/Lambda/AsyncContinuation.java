@@ -0,0 +1,85 @@
+package fr.emse.worker.Lambda;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3EventNotificationRecord;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.model.InvocationType;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+
+/**
+ * {@link Continuation} that invokes the function again, asynchronously, with the event written as an S3
+ * notification. The invocation is queued by Lambda and this one returns normally, so the number of
+ * continuations is not limited by Lambda's two retries of a failed event. The Lambda client is only
+ * built the first time an invocation runs out of time.
+ */
+class AsyncContinuation implements Continuation {
+
+    private LambdaClient lambdaClient;
+
+    @Override
+    public void resume(S3Event event, Context context) {
+        InvokeRequest request = InvokeRequest.builder()
+                // The ARN it was invoked with, so the continuation runs the same version or alias
+                .functionName(context.getInvokedFunctionArn())
+                .invocationType(InvocationType.EVENT)
+                .payload(SdkBytes.fromUtf8String(toJson(event)))
+                .build();
+        client().invoke(request);
+    }
+
+    private synchronized LambdaClient client() {
+        if (lambdaClient == null) {
+            lambdaClient = LambdaClients.lambda();
+        }
+        return lambdaClient;
+    }
+
+    /**
+     * The fields of an S3 notification the handler reads: bucket name, object key (URL-encoded, as S3 sends it)
+     * and ETag.
+     */
+    static String toJson(S3Event event) {
+        StringBuilder json = new StringBuilder("{\"Records\":[");
+        for (int i = 0; i < event.getRecords().size(); i++) {
+            S3EventNotificationRecord record = event.getRecords().get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"eventVersion\":");
+            string(json, record.getEventVersion());
+            json.append(",\"eventSource\":");
+            string(json, record.getEventSource());
+            json.append(",\"eventName\":");
+            string(json, record.getEventName());
+            json.append(",\"s3\":{\"s3SchemaVersion\":\"1.0\",\"bucket\":{\"name\":");
+            string(json, record.getS3().getBucket().getName());
+            json.append("},\"object\":{\"key\":");
+            string(json, record.getS3().getObject().getKey());
+            json.append(",\"eTag\":");
+            string(json, record.getS3().getObject().geteTag());
+            json.append("}}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,18 @@
+package fr.emse.worker.Lambda;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+
+/**
+ * Hands the dates an invocation ran out of time on over to another invocation of the function. The event
+ * names the same files as the original one; the new invocation finds the dates' checkpoints from their
+ * bucket and date and carries on from them.
+ */
+@FunctionalInterface
+interface Continuation {
+
+    /**
+     * Throws a runtime exception when the event could not be handed over.
+     */
+    void resume(S3Event event, Context context);
+}
@@ -0,0 +1,152 @@
+package fr.emse.worker.Lambda;
+
+import fr.emse.SalesKeys;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.worker.Aggregation.PartialAggregate;
+import fr.emse.worker.Aggregation.SalesSummary;
+import fr.emse.worker.Aggregation.SourceFile;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a date's summary, stored as {@code checkpoints/<bucket>/<date>.checkpoint} in the summary
+ * bucket: the files already added (key and ETag) and, until the summary is written, the totals so far.
+ * A file is only added once it was read in full. An invocation that runs out of time or fails to read a
+ * file saves it and the retried invocation carries on from it. Once the summary is written only the files
+ * are kept, so an event for files already summarized is skipped.
+ */
+final class LambdaCheckpoint {
+
+    private static final int MAGIC = 0x434B5054; // "CKPT"
+    private static final int VERSION = 2;
+
+    private final Map<String, String> files;
+    private final SalesSummary summary;
+
+    private LambdaCheckpoint(Map<String, String> files, SalesSummary summary) {
+        this.files = files;
+        this.summary = summary;
+    }
+
+    static LambdaCheckpoint start() {
+        return new LambdaCheckpoint(new LinkedHashMap<>(), new SalesSummary());
+    }
+
+    /**
+     * The saved checkpoint, or null when there is none or it cannot be read.
+     */
+    static LambdaCheckpoint load(ObjectStore store, String bucketName, LocalDate date) throws IOException {
+        try (ObjectContent content = store.get(key(bucketName, date));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(content))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            boolean complete = in.readBoolean();
+            int count = in.readInt();
+            Map<String, String> files = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                files.put(in.readUTF(), in.readUTF());
+            }
+            return new LambdaCheckpoint(files, complete ? null : PartialAggregate.readFrom(in).getSummary());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the summary was written from exactly these files.
+     */
+    boolean isSummaryOf(List<SourceFile> sources) {
+        return summary == null && files.size() == sources.size() && containsAll(sources);
+    }
+
+    /**
+     * Whether the totals so far can be carried on with these files: every file added is still there, unchanged.
+     */
+    boolean canResume(List<SourceFile> sources) {
+        if (summary == null) {
+            return false;
+        }
+        Map<String, String> current = new LinkedHashMap<>();
+        sources.forEach(source -> current.put(source.getKey(), source.getETag()));
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            if (file.getValue().isEmpty() || !file.getValue().equals(current.get(file.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean containsAll(List<SourceFile> sources) {
+        for (SourceFile source : sources) {
+            String eTag = files.get(source.getKey());
+            if (eTag == null || eTag.isEmpty() || !eTag.equals(source.getETag())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isAdded(SourceFile source) {
+        return files.containsKey(source.getKey());
+    }
+
+    int addedCount() {
+        return files.size();
+    }
+
+    SalesSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Adds the totals of a file read in full and records the file as added.
+     */
+    void add(SourceFile source, SalesSummary fileSummary) {
+        summary.merge(fileSummary);
+        files.put(source.getKey(), source.getETag() == null ? "" : source.getETag());
+    }
+
+    void save(ObjectStore store, String bucketName, LocalDate date) throws IOException {
+        store.put(key(bucketName, date), toBytes(true));
+    }
+
+    /**
+     * Keeps only the files, once the summary has been written.
+     */
+    void saveCompleted(ObjectStore store, String bucketName, LocalDate date) throws IOException {
+        store.put(key(bucketName, date), toBytes(false));
+    }
+
+    private byte[] toBytes(boolean withSummary) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeBoolean(!withSummary);
+        out.writeInt(files.size());
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            out.writeUTF(file.getKey());
+            out.writeUTF(file.getValue());
+        }
+        out.flush();
+        if (withSummary) {
+            new PartialAggregate("checkpoint", "", summary).writeTo(buffer);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String key(String bucketName, LocalDate date) {
+        return "checkpoints/" + bucketName + "/" + date.format(SalesKeys.FILE_DATE_FORMAT) + ".checkpoint";
+    }
+}
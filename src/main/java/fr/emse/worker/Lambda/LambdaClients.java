@@ -0,0 +1,83 @@
+package fr.emse.worker.Lambda;
+
+import fr.emse.worker.Metrics.MetricsInterceptor;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.LambdaClientBuilder;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+/**
+ * Clients for the Lambda runtime, configured explicitly so that nothing is discovered at cold start:
+ * the HTTP implementation is the JDK's URL connection, the region comes from {@code AWS_REGION} and the
+ * credentials from the variables the runtime sets, instead of walking the default provider chains.
+ * The URL connection client is only packaged in the lambda jar; the default jar keeps the SDK's default
+ * HTTP client.
+ */
+public final class LambdaClients {
+
+    private static final Region DEFAULT_REGION = Region.US_EAST_1;
+    private static final boolean URL_CONNECTION_CLIENT = isPresent("software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient");
+
+    private LambdaClients() {
+    }
+
+    public static S3Client s3() {
+        S3ClientBuilder builder = S3Client.builder();
+        if (URL_CONNECTION_CLIENT) {
+            builder.httpClientBuilder(urlConnectionClient());
+        }
+        return builder
+                .region(region())
+                .credentialsProvider(credentials())
+                .overrideConfiguration(config -> config.addExecutionInterceptor(new MetricsInterceptor()))
+                .build();
+    }
+
+    /**
+     * Client used to invoke the function again, see {@link AsyncContinuation}.
+     */
+    public static LambdaClient lambda() {
+        LambdaClientBuilder builder = LambdaClient.builder();
+        if (URL_CONNECTION_CLIENT) {
+            builder.httpClientBuilder(urlConnectionClient());
+        }
+        return builder
+                .region(region())
+                .credentialsProvider(credentials())
+                .overrideConfiguration(config -> config.addExecutionInterceptor(new MetricsInterceptor()))
+                .build();
+    }
+
+    // Kept out of s3() and lambda() so that UrlConnectionHttpClient is only resolved when it is on the classpath
+    private static SdkHttpClient.Builder<?> urlConnectionClient() {
+        return UrlConnectionHttpClient.builder();
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, LambdaClients.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Region region() {
+        String region = System.getenv("AWS_REGION");
+        return region == null || region.isBlank() ? DEFAULT_REGION : Region.of(region);
+    }
+
+    private static AwsCredentialsProvider credentials() {
+        // SnapStart functions get their credentials from a container endpoint instead of the usual variables
+        if (System.getenv("AWS_CONTAINER_CREDENTIALS_FULL_URI") != null) {
+            return ContainerCredentialsProvider.builder().build();
+        }
+        return EnvironmentVariableCredentialsProvider.create();
+    }
+}
@@ -3,125 +3,398 @@ package fr.emse.worker.Lambda;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
-import software.amazon.awssdk.core.ResponseInputStream;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3BucketEntity;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3Entity;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3EventNotificationRecord;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3ObjectEntity;
+import fr.emse.SalesKeys;
+import fr.emse.storage.AbortableOutputStream;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import fr.emse.storage.S3ObjectStore;
+import fr.emse.worker.Aggregation.IncrementalAggregator;
+import fr.emse.worker.Aggregation.ObjectDiscovery;
+import fr.emse.worker.Aggregation.ParallelIngestor;
+import fr.emse.worker.Aggregation.SalesFileReader;
+import fr.emse.worker.Aggregation.SalesSummary;
+import fr.emse.worker.Aggregation.SourceFile;
+import fr.emse.worker.Aggregation.SpillDirectory;
+import fr.emse.worker.Aggregation.SpillingSalesSummary;
+import fr.emse.worker.Aggregation.SummaryRecordHandler;
+import fr.emse.worker.Aggregation.SummaryWriter;
+import fr.emse.worker.Metrics.EmfExporter;
+import fr.emse.worker.Metrics.Metrics;
+import fr.emse.worker.WorkerConfig;
+import org.crac.Core;
+import org.crac.Resource;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.S3Object;
-
-import java.io.BufferedReader;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * S3-triggered worker. The records of an event are grouped by bucket and date, and each date's summary is
+ * rebuilt once per invocation. When the remaining time runs low the progress on the date is saved in a
+ * {@link LambdaCheckpoint} and the dates left are handed over to another invocation ({@link Continuation}),
+ * which carries on from it. A date whose files cannot be read fails the invocation, so that Lambda retries the event.
+ * <p>
+ * Its S3 client is configured explicitly (see {@link LambdaClients}) and, on a CRaC-enabled runtime such as
+ * SnapStart, the handler is primed before the snapshot is taken so restored instances start with parsing
+ * and summary writing already loaded and compiled. The client, stores and listings are kept across warm invocations.
+ */
+public class LambdaFunction implements RequestHandler<S3Event, String>, Resource {
+    private static final String SUMMARY_BUCKET_NAME = "mybucket1308";
+    private static final String CONTINUATION_EVENT = "ObjectCreated:Continuation";
+    private final S3Client s3Client;
+    private final ObjectStore summaryStore;
+    private final Function<String, ObjectStore> uploadStoreFactory;
+    private final Map<String, ObjectStore> uploadStores = new ConcurrentHashMap<>();
+    private final Continuation continuation;
+    private final SalesFileReader reader = new SalesFileReader();
+    private final long timeReserveMillis = WorkerConfig.getInt(WorkerConfig.LAMBDA_TIME_RESERVE, 10) * 1000L;
+    // Kept across warm invocations so the per-date manifests can be reused
+    private final Map<String, ObjectDiscovery> discoveries = new ConcurrentHashMap<>();
+    private EmfExporter metricsExporter;
+
+    public LambdaFunction() {
+        this(LambdaClients.s3(), new AsyncContinuation());
+    }
+
+    private LambdaFunction(S3Client s3Client, Continuation continuation) {
+        this(s3Client, new S3ObjectStore(s3Client, SUMMARY_BUCKET_NAME, WorkerConfig.getInt(WorkerConfig.SUMMARY_PART_SIZE, 8) * 1024 * 1024),
+                bucket -> new S3ObjectStore(s3Client, bucket), continuation);
+    }
+
+    /**
+     * @param uploadStoreFactory store of the files of an upload bucket, by bucket name
+     */
+    LambdaFunction(S3Client s3Client, ObjectStore summaryStore, Function<String, ObjectStore> uploadStoreFactory, Continuation continuation) {
+        this.s3Client = s3Client;
+        this.summaryStore = summaryStore;
+        this.uploadStoreFactory = uploadStoreFactory;
+        this.continuation = continuation;
+        // The global context only keeps a weak reference, the runtime keeps the handler alive
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        prime();
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        // Manifests cached before the snapshot may be arbitrarily old by the time it is restored
+        discoveries.clear();
+    }
+
+    /**
+     * Runs a small in-memory file through parsing, aggregation and summary writing, and with
+     * {@code WORKER_LAMBDA_PRIME_S3=true} one S3 request, so that their classes are loaded and warmed up.
+     */
+    void prime() {
+        StringBuilder csv = new StringBuilder("Date,Store,Product,Quantity,Unit Price,Unit Cost,Unit Profit,Total\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append("01-01-2024,Store ").append(i % 10).append(",Product ").append(i % 100)
+                    .append(',').append(1 + i % 5).append(",12.50,10.00,2.50,").append(12.5 * (1 + i % 5)).append('\n');
+        }
+        SalesSummary summary = new SalesSummary();
+        try {
+            // Not aggregate(), which would count the priming rows in the metrics
+            reader.read("prime.csv", null, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                    new SummaryRecordHandler(summary, message -> { }));
+            SummaryWriter.write(summary, OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            System.out.println("Priming failed: " + e.getMessage());
+        }
 
-public class LambdaFunction implements RequestHandler<S3Event, String> {
-    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-    private static final DateTimeFormatter FILE_NAME_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-    private final S3Client s3Client = S3Client.builder().build();
+        if (Boolean.parseBoolean(WorkerConfig.get(WorkerConfig.LAMBDA_PRIME_S3, "false"))) {
+            try {
+                s3Client.headBucket(builder -> builder.bucket(SUMMARY_BUCKET_NAME));
+            } catch (SdkException e) {
+                System.out.println("S3 priming request failed: " + e.getMessage());
+            }
+        }
+    }
 
     @Override
     public String handleRequest(S3Event event, Context context) {
+        // Notified files by bucket and date, so a date is rebuilt once however many of its files the event has
+        Map<String, Map<LocalDate, Map<String, String>>> batches = new LinkedHashMap<>();
         event.getRecords().forEach(record -> {
             String bucketName = record.getS3().getBucket().getName();
-            String fileKey = record.getS3().getObject().getKey();
+            String fileKey = record.getS3().getObject().getUrlDecodedKey();
 
-            String dateString = fileKey.substring(0, 10); // Assuming the date is at the start of the file name.
-            LocalDate processDate = LocalDate.parse(dateString, FILE_DATE_FORMAT);
-            processFiles(bucketName, processDate, context);
+            LocalDate processDate = SalesKeys.dateOf(fileKey);
+            if (processDate == null) {
+                context.getLogger().log("No date in file key, skipping: " + fileKey);
+                return;
+            }
+            if (record.getEventTime() != null) {
+                Metrics.histogram(Metrics.QUEUE_LAG).recordMillis(System.currentTimeMillis() - record.getEventTime().getMillis());
+            }
+            batches.computeIfAbsent(bucketName, bucket -> new TreeMap<>())
+                    .computeIfAbsent(processDate, date -> new HashMap<>())
+                    .put(fileKey, record.getS3().getObject().geteTag());
         });
 
-        return "Lambda invocation complete.";
+        List<LocalDate> failed = new ArrayList<>();
+        Map<String, Map<LocalDate, Map<String, String>>> unfinished = new LinkedHashMap<>();
+        List<LocalDate> unfinishedDates = new ArrayList<>();
+        boolean progressed = false;
+        try {
+            for (Map.Entry<String, Map<LocalDate, Map<String, String>>> bucket : batches.entrySet()) {
+                for (Map.Entry<LocalDate, Map<String, String>> date : bucket.getValue().entrySet()) {
+                    long start = System.nanoTime();
+                    Outcome outcome = processFiles(bucket.getKey(), date.getKey(), date.getValue(), context);
+                    if (outcome == Outcome.FAILED) {
+                        failed.add(date.getKey());
+                    } else if (outcome != Outcome.WRITTEN) {
+                        unfinished.computeIfAbsent(bucket.getKey(), name -> new TreeMap<>()).put(date.getKey(), date.getValue());
+                        unfinishedDates.add(date.getKey());
+                    }
+                    progressed |= outcome == Outcome.WRITTEN || outcome == Outcome.RESUMABLE;
+                    Metrics.histogram(Metrics.DATE_PROCESSING).recordSince(start);
+                }
+            }
+        } finally {
+            if (metricsExporter == null) {
+                metricsExporter = new EmfExporter(context.getFunctionName());
+            }
+            metricsExporter.flush();
+        }
+        if (!failed.isEmpty()) {
+            // The retried event carries on from the checkpoints of the dates that ran out of time too
+            throw new UnfinishedSummaryException("Summaries not written for " + failed
+                    + ", failing the invocation so that the event is retried");
+        }
+        if (unfinished.isEmpty()) {
+            return "Lambda invocation complete.";
+        }
+        if (!progressed) {
+            // Another invocation would run out of time the same way
+            throw new UnfinishedSummaryException("No time left to make progress on " + unfinishedDates
+                    + ", failing the invocation so that the event is retried");
+        }
+        try {
+            continuation.resume(continuationEvent(unfinished), context);
+        } catch (RuntimeException e) {
+            throw new UnfinishedSummaryException("Could not hand " + unfinishedDates + " over to another invocation"
+                    + ", failing the invocation so that the event is retried", e);
+        }
+        context.getLogger().log("Out of time, " + unfinishedDates + " handed over to another invocation");
+        return "Lambda invocation continued.";
     }
 
-    private void processFiles(String bucketName, LocalDate processDate, Context context) {
-        ListObjectsV2Request listRequest = ListObjectsV2Request.builder().bucket(bucketName).build();
-        ListObjectsV2Iterable listResponse = s3Client.listObjectsV2Paginator(listRequest);
+    /**
+     * Event naming the notified files of the dates, as S3 would (keys URL-encoded).
+     */
+    private static S3Event continuationEvent(Map<String, Map<LocalDate, Map<String, String>>> unfinished) {
+        List<S3EventNotificationRecord> records = new ArrayList<>();
+        unfinished.forEach((bucketName, dates) -> dates.values().forEach(files -> files.forEach((key, eTag) -> {
+            S3ObjectEntity object = new S3ObjectEntity(URLEncoder.encode(key, StandardCharsets.UTF_8), null, eTag, null, null);
+            S3Entity s3 = new S3Entity(null, new S3BucketEntity(bucketName, null, null), object, "1.0");
+            records.add(new S3EventNotificationRecord(null, CONTINUATION_EVENT, "aws:s3", null, "2.1", null, null, s3, null));
+        })));
+        return new S3Event(records);
+    }
 
-        Map<String, Double> totalProfitByStore = new HashMap<>();
-        Map<String, Double> totalProfitByProduct = new HashMap<>();
-        Map<String, Integer> totalQuantityByProduct = new HashMap<>();
-        Map<String, Double> totalSoldByProduct = new HashMap<>();
+    /**
+     * Rebuilds the date's summary.
+     */
+    private Outcome processFiles(String bucketName, LocalDate processDate, Map<String, String> notified, Context context) {
+        if (context.getRemainingTimeInMillis() < timeReserveMillis) {
+            return Outcome.NOT_STARTED;
+        }
+        ObjectStore uploads = uploadStores.computeIfAbsent(bucketName, uploadStoreFactory);
+        ObjectDiscovery discovery = discoveries.computeIfAbsent(bucketName,
+                bucket -> new ObjectDiscovery(uploads, WorkerConfig.getInt(WorkerConfig.DISCOVERY_CACHE_TTL, 0) * 1000L));
+        List<SourceFile> sources;
+        try {
+            sources = discovery.discover(processDate, notified);
+        } catch (IOException e) {
+            context.getLogger().log("Error listing files for " + processDate + " - " + e.getMessage());
+            return Outcome.FAILED;
+        }
 
-        for (S3Object s3Object : listResponse.contents()) {
-            if (s3Object.key().contains(processDate.format(FILE_DATE_FORMAT))) {
-                context.getLogger().log("Processing file: " + s3Object.key());
-                processFile(bucketName, s3Object.key(), totalProfitByStore, totalProfitByProduct, totalQuantityByProduct, totalSoldByProduct, context);
+        if (WorkerConfig.isIncremental()) {
+            IncrementalAggregator aggregator = new IncrementalAggregator(WorkerConfig.partialStore(summaryStore),
+                    new ParallelIngestor(1), message -> context.getLogger().log(message));
+            SalesSummary summary;
+            try {
+                summary = aggregator.aggregate(processDate, sources, (source, partial) -> processFile(uploads, source.getKey(), partial, context));
+            } catch (IOException e) {
+                context.getLogger().log("Error merging partial aggregates for " + processDate + " - " + e.getMessage());
+                return Outcome.FAILED;
+            }
+            return saveToCsv(summary, processDate, context) ? Outcome.WRITTEN : Outcome.FAILED;
+        } else if (WorkerConfig.maxProducts() > 0) {
+            // Products beyond the limit go to /tmp instead of the function's heap; no checkpoints. Each file is
+            // summed on its own, then merged, in the same order as the other modes, so the totals are the same
+            try (SpillDirectory spill = SpillDirectory.create(WorkerConfig.spillParent())) {
+                SalesSummary summary = new SpillingSalesSummary(spill.getPath(), WorkerConfig.maxProducts());
+                for (SourceFile source : sources) {
+                    SalesSummary fileSummary = new SpillingSalesSummary(spill.getPath(), WorkerConfig.maxProducts());
+                    if (!aggregateFile(uploads, source, fileSummary, context)) {
+                        return Outcome.FAILED;
+                    }
+                    summary.merge(fileSummary);
+                }
+                return saveToCsv(summary, processDate, context) ? Outcome.WRITTEN : Outcome.FAILED;
+            } catch (IOException | UncheckedIOException e) {
+                context.getLogger().log("Error spilling products for " + processDate + " - " + e.getMessage());
+                return Outcome.FAILED;
             }
         }
-
-        saveToCsv(totalProfitByStore, totalProfitByProduct, totalQuantityByProduct, totalSoldByProduct, context);
+        return aggregateFiles(uploads, bucketName, processDate, sources, context);
     }
 
-    private void processFile(String bucketName, String key, Map<String, Double> totalProfitByStore, Map<String, Double> totalProfitByProduct, Map<String, Integer> totalQuantityByProduct, Map<String, Double> totalSoldByProduct, Context context) {
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder().bucket(bucketName).key(key).build();
-        try (ResponseInputStream<GetObjectResponse> s3is = s3Client.getObject(getObjectRequest);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(s3is))) {
+    /**
+     * Adds the date's files to the totals of its checkpoint, in order, each read into its own summary first so
+     * that a file failing partway adds nothing. Stops, saving the checkpoint, at the first file that fails or
+     * when the remaining time would not cover the slowest file so far and the summary upload; the next
+     * invocation (continuation or retry) carries on from that file, so the totals are summed in the same order
+     * as in a single invocation.
+     */
+    private Outcome aggregateFiles(ObjectStore uploads, String bucketName, LocalDate processDate, List<SourceFile> sources, Context context) {
+        LambdaCheckpoint checkpoint = null;
+        try {
+            checkpoint = LambdaCheckpoint.load(summaryStore, bucketName, processDate);
+        } catch (IOException e) {
+            context.getLogger().log("Error reading checkpoint for " + processDate + " - " + e.getMessage());
+        }
+        if (checkpoint != null && checkpoint.isSummaryOf(sources)) {
+            context.getLogger().log("Summary for " + processDate + " already built from the same " + sources.size() + " file(s)");
+            return Outcome.WRITTEN;
+        }
+        if (checkpoint != null && checkpoint.canResume(sources)) {
+            context.getLogger().log("Resuming " + processDate + " from checkpoint, " + checkpoint.addedCount() + " of " + sources.size() + " file(s) done");
+        } else {
+            checkpoint = LambdaCheckpoint.start();
+        }
 
-            String line;
-            reader.readLine(); // Skip header
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(";");
-                if (parts.length != 8) {
-                    context.getLogger().log("Unexpected format at line: " + line);
-                    continue;
+        long slowestMillis = 0;
+        int added = 0;
+        for (SourceFile source : sources) {
+            if (checkpoint.isAdded(source)) {
+                continue;
+            }
+            if (context.getRemainingTimeInMillis() < timeReserveMillis + slowestMillis) {
+                if (added == 0) {
+                    return Outcome.NOT_STARTED;
                 }
-
-                String store = parts[1].trim();
-                String product = parts[2].trim();
-                int quantity = Integer.parseInt(parts[3].trim());
-                double unitPrice = Double.parseDouble(parts[4].trim());
-                double totalProfit = Double.parseDouble(parts[6].trim()) * quantity;
-                double totalSold = unitPrice * quantity;
-
-                totalProfitByStore.merge(store, totalProfit, Double::sum);
-                totalProfitByProduct.merge(product, totalProfit, Double::sum);
-                totalQuantityByProduct.merge(product, quantity, Integer::sum);
-                totalSoldByProduct.merge(product, totalSold, Double::sum);
+                // Without the checkpoint another invocation would start over, so it is a failure
+                return saveCheckpoint(checkpoint, bucketName, processDate, sources.size(), context) ? Outcome.RESUMABLE : Outcome.FAILED;
+            }
+            long start = System.currentTimeMillis();
+            SalesSummary fileSummary = new SalesSummary();
+            if (!aggregateFile(uploads, source, fileSummary, context)) {
+                saveCheckpoint(checkpoint, bucketName, processDate, sources.size(), context);
+                return Outcome.FAILED;
             }
+            checkpoint.add(source, fileSummary);
+            added++;
+            slowestMillis = Math.max(slowestMillis, System.currentTimeMillis() - start);
+        }
+
+        if (!saveToCsv(checkpoint.getSummary(), processDate, context)) {
+            saveCheckpoint(checkpoint, bucketName, processDate, sources.size(), context);
+            return Outcome.FAILED;
+        }
+        try {
+            checkpoint.saveCompleted(summaryStore, bucketName, processDate);
         } catch (IOException e) {
-            context.getLogger().log("Error processing file: " + key + " - " + e.getMessage());
+            context.getLogger().log("Error saving checkpoint for " + processDate + " - " + e.getMessage());
         }
+        return Outcome.WRITTEN;
     }
 
-    private void saveToCsv(Map<String, Double> totalProfitByStore, Map<String, Double> totalProfitByProduct, Map<String, Integer> totalQuantityByProduct, Map<String, Double> totalSoldByProduct, Context context) {
-        LocalDate today = LocalDate.now();
-        String fileName = "summary-" + today.format(FILE_NAME_DATE_FORMAT) + ".csv";
+    private boolean saveCheckpoint(LambdaCheckpoint checkpoint, String bucketName, LocalDate processDate, int fileCount, Context context) {
+        try {
+            checkpoint.save(summaryStore, bucketName, processDate);
+            context.getLogger().log("Checkpoint saved for " + processDate + ", " + checkpoint.addedCount() + " of " + fileCount + " file(s) done");
+            return true;
+        } catch (IOException e) {
+            context.getLogger().log("Error saving checkpoint for " + processDate + " - " + e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * Returns false when the file could not be read; rows read before the error stay in the summary.
+     */
+    private boolean aggregateFile(ObjectStore uploads, SourceFile source, SalesSummary summary, Context context) {
+        context.getLogger().log("Processing file: " + source.getKey());
         try {
-            Path tempFile = Files.createTempFile("summary", ".csv");
-            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tempFile))) {
-                // Store-related data
-                writer.println("By Store");
-                writer.println("Store Name;Total Profit");
-                totalProfitByStore.forEach((store, profit) -> writer.println(store + ";" + profit));
-
-                writer.println(); // Blank line for separation
-
-                // Product-related data
-                writer.println("By Product");
-                writer.println("Product Name;Total Profit;Total Quantity;Total Sold");
-                totalProfitByProduct.keySet().forEach(product -> {
-                    Double profit = totalProfitByProduct.getOrDefault(product, 0.0);
-                    Integer quantity = totalQuantityByProduct.getOrDefault(product, 0);
-                    Double sold = totalSoldByProduct.getOrDefault(product, 0.0);
-                    writer.println(product + ";" + profit + ";" + quantity + ";" + sold);
-                });
-            }
+            processFile(uploads, source.getKey(), summary, context);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            context.getLogger().log("Error processing file: " + source.getKey() + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void processFile(ObjectStore uploads, String key, SalesSummary summary, Context context) throws IOException {
+        try (ObjectContent content = uploads.get(key)) {
+            reader.aggregate(key, content.getContentEncoding(), content, summary, message -> context.getLogger().log(message));
+        }
+    }
+
+    private boolean saveToCsv(SalesSummary summary, LocalDate processDate, Context context) {
+        String fileName = "summary-" + processDate.format(SalesKeys.FILE_DATE_FORMAT) + ".csv";
 
-            // Upload to S3 in the specified bucket
-            s3Client.putObject(PutObjectRequest.builder().bucket("mybucket1308").key(fileName).build(), tempFile);
-            Files.delete(tempFile);
+        // Streamed straight to S3: no /tmp file to write, read back or leak
+        AbortableOutputStream out = null;
+        try {
+            out = summaryStore.create(fileName, "text/csv");
+            SummaryWriter.write(summary, out);
+            out.close();
+            return true;
         } catch (IOException e) {
+            if (out != null) {
+                out.abort();
+            }
             context.getLogger().log("Error saving summary file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private enum Outcome {
+        WRITTEN,
+        // Out of time, with the files read so far saved in the date's checkpoint
+        RESUMABLE,
+        // Out of time before any file was read
+        NOT_STARTED,
+        FAILED
+    }
+
+    /**
+     * Fails the invocation so that Lambda retries the event; in full mode progress is in the checkpoints.
+     */
+    static class UnfinishedSummaryException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnfinishedSummaryException(String message) {
+            super(message);
+        }
+
+        UnfinishedSummaryException(String message, Throwable cause) {
+            super(message, cause);
         }
     }
 }
@@ -0,0 +1,34 @@
+package fr.emse.worker.Lambda;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Measures what a cold start of {@link LambdaFunction} costs outside of Lambda: time to load and
+ * construct the handler (S3 client included), the same with priming, classes loaded and heap used
+ * once initialization garbage is collected.
+ * Usage: {@code java -cp <lambda jar> fr.emse.worker.Lambda.LambdaInitProbe [--prime]}.
+ */
+public class LambdaInitProbe {
+
+    public static void main(String[] args) {
+        boolean prime = args.length > 0 && args[0].equals("--prime");
+        long start = System.nanoTime();
+        LambdaFunction function = new LambdaFunction();
+        long constructed = System.nanoTime();
+        if (prime) {
+            function.prime();
+        }
+        long initialized = System.nanoTime();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        System.out.printf("JVM start to handler ready: %d ms%n", ManagementFactory.getRuntimeMXBean().getUptime());
+        System.out.printf("Handler construction: %.1f ms%n", (constructed - start) / 1e6);
+        if (prime) {
+            System.out.printf("Priming: %.1f ms%n", (initialized - constructed) / 1e6);
+        }
+        System.out.printf("Classes loaded: %d%n", ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+        System.out.printf("Heap used after init: %d KiB%n", memory.getHeapMemoryUsage().getUsed() / 1024);
+    }
+}
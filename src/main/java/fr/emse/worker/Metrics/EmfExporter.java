@@ -0,0 +1,73 @@
+package fr.emse.worker.Metrics;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints the metrics as one CloudWatch Embedded Metric Format line, which CloudWatch Logs turns into
+ * metrics without any API call. Each line holds what changed since the previous one: counter increments,
+ * and for histograms the number of calls, their average and maximum.
+ */
+public class EmfExporter {
+
+    private static final String NAMESPACE = "SalesWorkers";
+    // CloudWatch accepts at most 100 metrics per line
+    private static final int MAX_METRICS = 100;
+
+    private final String functionName;
+    private final Map<String, Long> lastCounters = new HashMap<>();
+    private final Map<String, Long> lastCounts = new HashMap<>();
+    private final Map<String, Double> lastSums = new HashMap<>();
+
+    public EmfExporter(String functionName) {
+        this.functionName = functionName;
+    }
+
+    public synchronized void flush() {
+        StringBuilder definitions = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        int metrics = 0;
+
+        for (Map.Entry<String, Counter> counter : Metrics.counters().entrySet()) {
+            long value = counter.getValue().get();
+            long delta = value - lastCounters.getOrDefault(counter.getKey(), 0L);
+            lastCounters.put(counter.getKey(), value);
+            if (delta > 0 && metrics < MAX_METRICS) {
+                metrics += append(definitions, values, counter.getKey(), counter.getKey().startsWith("bytes") ? "Bytes" : "Count", delta);
+            }
+        }
+        for (Map.Entry<String, Histogram> entry : Metrics.histograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            long count = histogram.count();
+            double sum = histogram.sumMillis();
+            long calls = count - lastCounts.getOrDefault(entry.getKey(), 0L);
+            double time = sum - lastSums.getOrDefault(entry.getKey(), 0.0);
+            lastCounts.put(entry.getKey(), count);
+            lastSums.put(entry.getKey(), sum);
+            double max = histogram.takeIntervalMaxMillis();
+            if (calls > 0 && metrics + 3 <= MAX_METRICS) {
+                metrics += append(definitions, values, entry.getKey() + ".count", "Count", calls);
+                metrics += append(definitions, values, entry.getKey() + ".avg", "Milliseconds", time / calls);
+                metrics += append(definitions, values, entry.getKey() + ".max", "Milliseconds", max);
+            }
+        }
+        if (metrics == 0) {
+            return;
+        }
+
+        System.out.println("{\"_aws\":{\"Timestamp\":" + System.currentTimeMillis()
+                + ",\"CloudWatchMetrics\":[{\"Namespace\":\"" + NAMESPACE + "\",\"Dimensions\":[[\"FunctionName\"]],\"Metrics\":["
+                + definitions + "]}]},\"FunctionName\":\"" + functionName.replace("\"", "") + "\"" + values + "}");
+    }
+
+    private static int append(StringBuilder definitions, StringBuilder values, String name, String unit, double value) {
+        if (definitions.length() > 0) {
+            definitions.append(',');
+        }
+        definitions.append("{\"Name\":\"").append(name).append("\",\"Unit\":\"").append(unit).append("\"}");
+        values.append(",\"").append(name).append("\":")
+                .append(value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.3f", value));
+        return 1;
+    }
+}
@@ -0,0 +1,67 @@
+package fr.emse.worker.Metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed millisecond buckets, cheap enough to record every call.
+ */
+public class Histogram {
+
+    static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10_000, 30_000, 60_000, 300_000};
+
+    // Last bucket holds everything above the largest bound
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong intervalMaxNanos = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        intervalMaxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void recordMillis(long millis) {
+        recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} value.
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public double sumMillis() {
+        return sumNanos.get() / 1e6;
+    }
+
+    public double maxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Largest value recorded since the previous call, for exporters that report per interval.
+     */
+    public double takeIntervalMaxMillis() {
+        return intervalMaxNanos.getAndSet(0) / 1e6;
+    }
+
+    long bucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+}
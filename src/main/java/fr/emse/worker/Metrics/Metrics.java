@@ -0,0 +1,46 @@
+package fr.emse.worker.Metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide counters and latency histograms of the workers, exported by
+ * {@link MetricsHttpServer} on EC2 and {@link EmfExporter} on Lambda.
+ * S3 and SQS calls are timed per operation by {@link MetricsInterceptor}.
+ */
+public final class Metrics {
+
+    public static final String ROWS_PARSED = "rows.parsed";
+    public static final String ROWS_REJECTED = "rows.rejected";
+    public static final String BYTES_READ = "bytes.read";
+    public static final String FILES_PROCESSED = "files.processed";
+    public static final String FILES_FAILED = "files.failed";
+    public static final String MESSAGES_RECEIVED = "sqs.messages.received";
+    public static final String FILE_PROCESSING = "file.processing";
+    public static final String DATE_PROCESSING = "date.processing";
+    // Time from the upload notification (SQS send time, S3 event time) to the worker picking it up
+    public static final String QUEUE_LAG = "queue.lag";
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    public static Map<String, Counter> counters() {
+        return new TreeMap<>(COUNTERS);
+    }
+
+    public static Map<String, Histogram> histograms() {
+        return new TreeMap<>(HISTOGRAMS);
+    }
+}
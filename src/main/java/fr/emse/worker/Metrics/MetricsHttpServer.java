@@ -0,0 +1,73 @@
+package fr.emse.worker.Metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics at {@code http://localhost:<port>/metrics} in the Prometheus text format.
+ * Histograms are in seconds, as Prometheus expects.
+ */
+public final class MetricsHttpServer {
+
+    private MetricsHttpServer() {
+    }
+
+    public static HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", MetricsHttpServer::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return server;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static String render() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> counter : Metrics.counters().entrySet()) {
+            String name = metricName(counter.getKey()) + "_total";
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(counter.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : Metrics.histograms().entrySet()) {
+            String name = metricName(entry.getKey()) + "_seconds";
+            Histogram histogram = entry.getValue();
+            text.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulative = 0;
+            for (int bucket = 0; bucket < Histogram.BUCKET_BOUNDS_MILLIS.length; bucket++) {
+                cumulative += histogram.bucketCount(bucket);
+                text.append(name).append("_bucket{le=\"")
+                        .append(String.format(Locale.ROOT, "%.3f", Histogram.BUCKET_BOUNDS_MILLIS[bucket] / 1000.0))
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            text.append(name).append("_bucket{le=\"+Inf\"} ").append(histogram.count()).append('\n');
+            text.append(name).append("_sum ").append(String.format(Locale.ROOT, "%.6f", histogram.sumMillis() / 1000)).append('\n');
+            text.append(name).append("_count ").append(histogram.count()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String metricName(String name) {
+        return "sales_worker_" + name.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+}
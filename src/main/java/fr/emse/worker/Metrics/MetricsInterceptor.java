@@ -0,0 +1,41 @@
+package fr.emse.worker.Metrics;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * Times every call of the client it is added to, retries included, as a histogram named after the
+ * service and operation ({@code s3.GetObject}, {@code sqs.ReceiveMessage}...), and counts failed calls
+ * ({@code s3.GetObject.errors}). For GetObject the time ends when the response headers arrive; reading
+ * the body is part of {@link Metrics#FILE_PROCESSING}.
+ */
+public class MetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("MetricsStartNanos");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        Long start = executionAttributes.getAttribute(START_NANOS);
+        if (start != null) {
+            Metrics.histogram(name(executionAttributes)).recordSince(start);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Metrics.counter(name(executionAttributes) + ".errors").increment();
+    }
+
+    private static String name(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME).toLowerCase()
+                + "." + executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+}
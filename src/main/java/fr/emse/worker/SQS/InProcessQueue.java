@@ -0,0 +1,123 @@
+package fr.emse.worker.SQS;
+
+import fr.emse.worker.Metrics.Metrics;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory {@link MessageQueue} for running the workers without SQS: messages are received with a
+ * visibility timeout and come back to the queue unless deleted in time, each delivery with a new
+ * receipt handle, so a handler that fails or is slow behaves as it would against SQS.
+ */
+public class InProcessQueue implements MessageQueue {
+
+    private final long waitMillis;
+    private final long visibilityTimeoutMillis;
+    private final Deque<Message> visible = new ArrayDeque<>();
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+    private long sequence;
+
+    public InProcessQueue(long waitMillis, int visibilityTimeoutSeconds) {
+        this.waitMillis = waitMillis;
+        this.visibilityTimeoutMillis = visibilityTimeoutSeconds * 1000L;
+    }
+
+    @Override
+    public synchronized void send(String messageBody) {
+        visible.add(Message.builder()
+                .messageId(Long.toString(++sequence))
+                .body(messageBody)
+                .attributes(Map.of(MessageSystemAttributeName.SENT_TIMESTAMP, Long.toString(System.currentTimeMillis())))
+                .build());
+        notifyAll();
+    }
+
+    @Override
+    public synchronized List<Message> receiveMessages(int maxMessages) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            long now = System.currentTimeMillis();
+            returnExpired(now);
+            if (!visible.isEmpty() || now >= deadline) {
+                break;
+            }
+            try {
+                // Bounded so that messages whose visibility runs out while waiting are picked up
+                wait(Math.min(deadline - now, 100));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return List.of();
+            }
+        }
+
+        List<Message> received = new ArrayList<>();
+        long visibleAgainAt = System.currentTimeMillis() + visibilityTimeoutMillis;
+        while (received.size() < Math.min(maxMessages, MAX_BATCH_SIZE) && !visible.isEmpty()) {
+            Message message = visible.poll().toBuilder().receiptHandle(Long.toString(++sequence)).build();
+            inFlight.put(message.receiptHandle(), new InFlight(message, visibleAgainAt));
+            received.add(message);
+        }
+        Metrics.counter(Metrics.MESSAGES_RECEIVED).add(received.size());
+        return received;
+    }
+
+    private void returnExpired(long now) {
+        Iterator<InFlight> messages = inFlight.values().iterator();
+        while (messages.hasNext()) {
+            InFlight message = messages.next();
+            if (message.visibleAgainAt <= now) {
+                messages.remove();
+                visible.add(message.message);
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<Message> deleteMessages(List<Message> messages) {
+        List<Message> failed = new ArrayList<>();
+        for (Message message : messages) {
+            // A receipt handle is only valid until the message is delivered again
+            if (inFlight.remove(message.receiptHandle()) == null) {
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public synchronized void changeVisibility(List<Message> messages, int visibilityTimeoutSeconds) {
+        long visibleAgainAt = System.currentTimeMillis() + visibilityTimeoutSeconds * 1000L;
+        for (Message message : messages) {
+            InFlight current = inFlight.get(message.receiptHandle());
+            if (current != null) {
+                current.visibleAgainAt = visibleAgainAt;
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Messages waiting to be received or received and not deleted yet.
+     */
+    public synchronized int size() {
+        return visible.size() + inFlight.size();
+    }
+
+    private static class InFlight {
+        private final Message message;
+        private long visibleAgainAt;
+
+        private InFlight(Message message, long visibleAgainAt) {
+            this.message = message;
+            this.visibleAgainAt = visibleAgainAt;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package fr.emse.worker.SQS;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pipeline that keeps an SQS queue (or an {@link InProcessQueue}) drained:
+ * <ul>
+ *     <li>pollers long-poll the queue, but only ask for as many messages as there is room for
+ *     in the bounded work queue, so a busy worker pool slows polling down instead of letting
+ *     received messages time out;</li>
+ *     <li>a dispatcher groups the received messages by key for a coalescing window and hands
+ *     each group to the worker pool once. A key is never handled by two workers at the same
+ *     time: messages for a key that is being handled wait for the next group;</li>
+ *     <li>handled messages are deleted in batches of up to 10;</li>
+ *     <li>the visibility timeout of messages still queued or being handled is extended
+ *     periodically, in batches, until they are deleted or given up on.</li>
+ * </ul>
+ */
+public class MessageConsumer implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(MessageConsumer.class.getName());
+    private static final long DELETE_FLUSH_MILLIS = 1000;
+    private static final long DISPATCH_POLL_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MessageQueue reader;
+    private final Function<Message, String> keyExtractor;
+    private final MessageHandler handler;
+    private final int pollers;
+    private final int visibilityTimeoutSeconds;
+    private final long coalesceWindowNanos;
+
+    private final BlockingQueue<Message> workQueue;
+    private final Semaphore capacity;
+    private final Map<String, Message> inFlight = new ConcurrentHashMap<>();
+    private final BlockingQueue<Message> pendingDeletes = new LinkedBlockingQueue<>();
+
+    // Only touched by the dispatcher thread, apart from runningKeys completions
+    private final Map<String, PendingGroup> pendingGroups = new LinkedHashMap<>();
+    private final Set<String> runningKeys = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService pollerPool;
+    private final ExecutorService dispatcher;
+    private final ExecutorService workerPool;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public MessageConsumer(MessageQueue reader, Function<Message, String> keyExtractor, MessageHandler handler,
+                           int pollers, int workers, int queueCapacity, int visibilityTimeoutSeconds, long coalesceWindowMillis) {
+        this.reader = reader;
+        this.keyExtractor = keyExtractor;
+        this.handler = handler;
+        this.pollers = pollers;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis);
+        this.workQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.capacity = new Semaphore(queueCapacity);
+        this.pollerPool = Executors.newFixedThreadPool(pollers, namedThreads("sqs-poller"));
+        this.dispatcher = Executors.newSingleThreadExecutor(namedThreads("sqs-dispatcher"));
+        this.workerPool = Executors.newFixedThreadPool(workers, namedThreads("sqs-worker"));
+        this.scheduler = Executors.newScheduledThreadPool(1, namedThreads("sqs-maintenance"));
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < pollers; i++) {
+            pollerPool.submit(this::poll);
+        }
+        dispatcher.submit(this::dispatch);
+        long heartbeatSeconds = Math.max(1, visibilityTimeoutSeconds / 3);
+        scheduler.scheduleWithFixedDelay(this::extendVisibility, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::flushDeletes, DELETE_FLUSH_MILLIS, DELETE_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        long backoffMillis = 0;
+        while (running) {
+            try {
+                // Wait for room in the work queue, then ask for at most that many messages
+                capacity.acquire();
+                int permits = 1 + capacity.drainPermits();
+                int wanted = Math.min(permits, MessageQueue.MAX_BATCH_SIZE);
+                capacity.release(permits - wanted);
+
+                List<Message> messages = reader.receiveMessages(wanted);
+                capacity.release(wanted - messages.size());
+                for (Message message : messages) {
+                    inFlight.put(message.messageId(), message);
+                    workQueue.put(message);
+                }
+                backoffMillis = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(1000, backoffMillis * 2));
+                LOGGER.log(Level.WARNING, "Polling failed, retrying in " + backoffMillis + " ms", e);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (running || !workQueue.isEmpty() || !pendingGroups.isEmpty()) {
+            Message message;
+            try {
+                message = workQueue.poll(DISPATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long now = System.nanoTime();
+            if (message != null) {
+                String key = keyExtractor.apply(message);
+                if (key == null) {
+                    submit(null, List.of(message));
+                } else {
+                    pendingGroups.computeIfAbsent(key, k -> new PendingGroup(now)).messages.add(message);
+                }
+            }
+
+            Iterator<Map.Entry<String, PendingGroup>> groups = pendingGroups.entrySet().iterator();
+            while (groups.hasNext()) {
+                Map.Entry<String, PendingGroup> group = groups.next();
+                boolean windowElapsed = now - group.getValue().firstReceivedNanos >= coalesceWindowNanos || !running;
+                if (windowElapsed && runningKeys.add(group.getKey())) {
+                    groups.remove();
+                    submit(group.getKey(), group.getValue().messages);
+                }
+            }
+        }
+    }
+
+    private void submit(String key, List<Message> messages) {
+        workerPool.execute(() -> {
+            boolean handled = false;
+            try {
+                handled = handler.handle(key, messages);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error handling " + messages.size() + " message(s) for " + key, e);
+            } finally {
+                if (key != null) {
+                    runningKeys.remove(key);
+                }
+                capacity.release(messages.size());
+            }
+
+            if (handled) {
+                pendingDeletes.addAll(messages);
+                if (pendingDeletes.size() >= MessageQueue.MAX_BATCH_SIZE) {
+                    scheduler.execute(this::flushDeletes);
+                }
+            } else {
+                // Stop extending them so the messages become visible again once their timeout runs out
+                messages.forEach(message -> inFlight.remove(message.messageId()));
+            }
+        });
+    }
+
+    private void flushDeletes() {
+        List<Message> batch = new ArrayList<>();
+        pendingDeletes.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Message> failed = reader.deleteMessages(batch);
+        batch.forEach(message -> inFlight.remove(message.messageId()));
+        if (!failed.isEmpty()) {
+            LOGGER.warning(failed.size() + " message(s) could not be deleted and will be redelivered");
+        }
+    }
+
+    private void extendVisibility() {
+        List<Message> messages = new ArrayList<>(inFlight.values());
+        if (!messages.isEmpty()) {
+            reader.changeVisibility(messages, visibilityTimeoutSeconds);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        pollerPool.shutdownNow();
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(visibilityTimeoutSeconds, TimeUnit.SECONDS);
+            workerPool.shutdown();
+            if (!workerPool.awaitTermination(visibilityTimeoutSeconds, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            dispatcher.shutdownNow();
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+        flushDeletes();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class PendingGroup {
+        private final long firstReceivedNanos;
+        private final List<Message> messages = new ArrayList<>();
+
+        private PendingGroup(long firstReceivedNanos) {
+            this.firstReceivedNanos = firstReceivedNanos;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package fr.emse.worker.SQS;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface MessageHandler {
+
+    /**
+     * Handles a group of messages sharing the same key (null for messages without a key,
+     * which are always handled alone). Returns true when the whole group is done with and
+     * can be deleted from the queue.
+     */
+    boolean handle(String key, List<Message> messages) throws Exception;
+}
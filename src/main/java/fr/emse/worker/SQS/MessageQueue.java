@@ -0,0 +1,30 @@
+package fr.emse.worker.SQS;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.List;
+
+/**
+ * Queue with SQS semantics: a received message stays invisible to other receivers for a
+ * visibility timeout and is delivered again unless it is deleted before the timeout runs out.
+ * Implemented over SQS by {@link ReadMessage} and in memory by {@link InProcessQueue}.
+ */
+public interface MessageQueue {
+
+    // Upper bound SQS accepts for receive and batch requests
+    int MAX_BATCH_SIZE = 10;
+
+    /**
+     * Waits up to the queue's wait time for at most {@code maxMessages} messages; empty when none arrived or receiving failed.
+     */
+    List<Message> receiveMessages(int maxMessages);
+
+    /**
+     * Returns the messages that could not be deleted.
+     */
+    List<Message> deleteMessages(List<Message> messages);
+
+    void changeVisibility(List<Message> messages, int visibilityTimeoutSeconds);
+
+    void send(String messageBody);
+}
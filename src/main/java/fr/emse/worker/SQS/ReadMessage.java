@@ -1,39 +1,137 @@
 package fr.emse.worker.SQS;
 
+import fr.emse.worker.Metrics.Metrics;
+import fr.emse.worker.Metrics.MetricsInterceptor;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-public class ReadMessage {
+public class ReadMessage implements MessageQueue {
     private static final Logger LOGGER = Logger.getLogger(ReadMessage.class.getName());
     private final SqsClient sqsClient;
     private final String queueUrl;
+    private final SendMessage sender;
 
     public ReadMessage(String queueUrl) {
         this.sqsClient = SqsClient.builder()
                 .region(Region.US_EAST_1)
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .overrideConfiguration(config -> config.addExecutionInterceptor(new MetricsInterceptor()))
                 .build();
         this.queueUrl = queueUrl;
+        this.sender = new SendMessage(sqsClient);
     }
 
     public List<Message> receiveMessages() {
+        return receiveMessages(MAX_BATCH_SIZE);
+    }
+
+    @Override
+    public List<Message> receiveMessages(int maxMessages) {
         try {
             ReceiveMessageRequest receiveRequest = ReceiveMessageRequest.builder()
                     .queueUrl(queueUrl)
-                    .maxNumberOfMessages(10)
+                    .maxNumberOfMessages(Math.min(maxMessages, MAX_BATCH_SIZE))
                     .waitTimeSeconds(20)
+                    .attributeNamesWithStrings(MessageSystemAttributeName.SENT_TIMESTAMP.toString())
                     .build();
 
-            return sqsClient.receiveMessage(receiveRequest).messages();
+            List<Message> messages = sqsClient.receiveMessage(receiveRequest).messages();
+            recordQueueLag(messages);
+            return messages;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to receive messages from SQS", e);
-            return null;
+            return Collections.emptyList();
         }
     }
+
+    private static void recordQueueLag(List<Message> messages) {
+        Metrics.counter(Metrics.MESSAGES_RECEIVED).add(messages.size());
+        long now = System.currentTimeMillis();
+        for (Message message : messages) {
+            String sentTimestamp = message.attributes().get(MessageSystemAttributeName.SENT_TIMESTAMP);
+            if (sentTimestamp != null) {
+                Metrics.histogram(Metrics.QUEUE_LAG).recordMillis(now - Long.parseLong(sentTimestamp));
+            }
+        }
+    }
+
+    /**
+     * Deletes the messages with DeleteMessageBatch, 10 at a time. Returns the messages that could not be deleted.
+     */
+    @Override
+    public List<Message> deleteMessages(List<Message> messages) {
+        List<Message> failed = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += MAX_BATCH_SIZE) {
+            List<Message> batch = messages.subList(from, Math.min(from + MAX_BATCH_SIZE, messages.size()));
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(batch.get(i).receiptHandle())
+                        .build());
+            }
+            try {
+                DeleteMessageBatchResponse response = sqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(entries)
+                        .build());
+                for (BatchResultErrorEntry error : response.failed()) {
+                    LOGGER.warning("Failed to delete message: " + error.code() + " " + error.message());
+                    failed.add(batch.get(Integer.parseInt(error.id())));
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed to delete messages from SQS", e);
+                failed.addAll(batch);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Resets the visibility timeout of the messages with ChangeMessageVisibilityBatch, 10 at a time.
+     */
+    @Override
+    public void changeVisibility(List<Message> messages, int visibilityTimeoutSeconds) {
+        for (int from = 0; from < messages.size(); from += MAX_BATCH_SIZE) {
+            List<Message> batch = messages.subList(from, Math.min(from + MAX_BATCH_SIZE, messages.size()));
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(batch.get(i).receiptHandle())
+                        .visibilityTimeout(visibilityTimeoutSeconds)
+                        .build());
+            }
+            try {
+                sqsClient.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(entries)
+                        .build())
+                        .failed()
+                        .forEach(error -> LOGGER.warning("Failed to extend message visibility: " + error.code() + " " + error.message()));
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed to extend message visibility", e);
+            }
+        }
+    }
+
+    @Override
+    public void send(String messageBody) {
+        sender.sendSqsMessage(queueUrl, messageBody);
+    }
 }
@@ -11,10 +11,17 @@ public class SendMessage {
     private final SqsClient sqsClient;
 
     public SendMessage() {
-        this.sqsClient = SqsClient.builder()
+        this(SqsClient.builder()
                 .region(Region.US_EAST_1)
                 .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
+                .build());
+    }
+
+    /**
+     * Sends with an existing client, e.g. the one a {@link ReadMessage} polls with.
+     */
+    public SendMessage(SqsClient sqsClient) {
+        this.sqsClient = sqsClient;
     }
 
     public SendMessageResponse sendSqsMessage(String queueUrl, String messageBody) {
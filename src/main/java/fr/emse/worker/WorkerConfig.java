@@ -0,0 +1,99 @@
+package fr.emse.worker;
+
+import fr.emse.Settings;
+import fr.emse.storage.ObjectStore;
+import fr.emse.worker.Aggregation.LocalPartialStore;
+import fr.emse.worker.Aggregation.ObjectStorePartialStore;
+import fr.emse.worker.Aggregation.PartialStore;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Worker settings, read from a system property first and then from the environment
+ * (property {@code worker.aggregation.mode} maps to variable {@code WORKER_AGGREGATION_MODE}).
+ */
+public final class WorkerConfig {
+
+    public static final String AGGREGATION_MODE = "worker.aggregation.mode";
+    public static final String PARTIAL_STORE = "worker.partial.store";
+    public static final String PARTIAL_STORE_DIR = "worker.partial.dir";
+    public static final String INGEST_CONCURRENCY = "worker.ingest.concurrency";
+    public static final String SQS_POLLERS = "worker.sqs.pollers";
+    public static final String SQS_WORKERS = "worker.sqs.workers";
+    public static final String SQS_QUEUE_CAPACITY = "worker.sqs.queue.capacity";
+    public static final String SQS_VISIBILITY_TIMEOUT = "worker.sqs.visibility.timeout";
+    public static final String SQS_COALESCE_WINDOW = "worker.sqs.coalesce.window";
+    public static final String SUMMARY_LEASE_TTL = "worker.summary.lease.ttl";
+    public static final String DISCOVERY_CACHE_TTL = "worker.discovery.cache.ttl";
+    public static final String SUMMARY_PART_SIZE = "worker.summary.part.size";
+    public static final String LAMBDA_PRIME_S3 = "worker.lambda.prime.s3";
+    public static final String LAMBDA_TIME_RESERVE = "worker.lambda.time.reserve";
+    public static final String METRICS_PORT = "worker.metrics.port";
+    public static final String MAX_PRODUCTS = "worker.aggregation.max.products";
+    public static final String SPILL_DIR = "worker.spill.dir";
+    public static final String SHARD_FILES = "worker.shard.files";
+    public static final String SPLIT_SIZE = "worker.split.size";
+    public static final String SPLIT_CONCURRENCY = "worker.split.concurrency";
+    public static final String REPLAY_TIMEOUT = "worker.replay.timeout";
+
+    private WorkerConfig() {
+    }
+
+    public static String get(String name, String defaultValue) {
+        return Settings.get(name, defaultValue);
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean isIncremental() {
+        return "incremental".equalsIgnoreCase(get(AGGREGATION_MODE, "full"));
+    }
+
+    /**
+     * Dates split into shard tasks that any EC2 instance can run, with {@code worker.aggregation.mode=sharded}.
+     */
+    public static boolean isSharded() {
+        return "sharded".equalsIgnoreCase(get(AGGREGATION_MODE, "full"));
+    }
+
+    /**
+     * Products a summary keeps in memory before spilling them to disk; 0, the default, keeps them all in memory.
+     */
+    public static int maxProducts() {
+        return getInt(MAX_PRODUCTS, 0);
+    }
+
+    public static Path spillParent() {
+        return Paths.get(get(SPILL_DIR, System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Partials in the summary bucket's store, or on disk with {@code worker.partial.store=local}.
+     */
+    public static PartialStore partialStore(ObjectStore summaryStore) {
+        if ("local".equalsIgnoreCase(get(PARTIAL_STORE, "s3"))) {
+            return new LocalPartialStore(Paths.get(get(PARTIAL_STORE_DIR, System.getProperty("java.io.tmpdir") + "/partials")));
+        }
+        return new ObjectStorePartialStore(summaryStore);
+    }
+
+    /**
+     * Partials of shard tasks, kept apart from the incremental ones under {@code shards/}. Always in the summary
+     * store, whatever {@code worker.partial.store} says: shards run on different instances and the one that
+     * merges them must see every partial.
+     */
+    public static PartialStore shardStore(ObjectStore summaryStore) {
+        return new ObjectStorePartialStore(summaryStore, "shards/");
+    }
+}
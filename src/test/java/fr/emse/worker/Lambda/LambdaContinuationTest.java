@@ -0,0 +1,200 @@
+package fr.emse.worker.Lambda;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3BucketEntity;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3Entity;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3EventNotificationRecord;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3ObjectEntity;
+import fr.emse.storage.LocalObjectStore;
+import fr.emse.storage.ObjectContent;
+import fr.emse.storage.ObjectStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class LambdaContinuationTest {
+
+    private static final String BUCKET = "clientbucket13";
+    private static final String SUMMARY_KEY = "summary-05-02-2024.csv";
+    private static final int FILE_COUNT = 12;
+    private static final String COMPLETE = "Lambda invocation complete.";
+    private static final String CONTINUED = "Lambda invocation continued.";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void rebuildCarriedOverManyContinuationsWritesTheSameSummary() throws IOException {
+        ObjectStore uploads = new LocalObjectStore(root.resolve(BUCKET));
+        S3Event event = writeFiles(uploads);
+
+        ObjectStore expected = new LocalObjectStore(root.resolve("expected"));
+        Continuation none = (next, context) -> fail("Continued although there was time for every file");
+        assertEquals(COMPLETE, function(expected, uploads, none).handleRequest(event, new TestContext(Integer.MAX_VALUE)));
+
+        // Every invocation has time for two files, and runs on a new instance: only the checkpoint carries over
+        ObjectStore summaries = new LocalObjectStore(root.resolve("summaries"));
+        List<S3Event> continuations = new ArrayList<>();
+        Continuation capture = (next, context) -> continuations.add(next);
+        String result = function(summaries, uploads, capture).handleRequest(event, new TestContext(3));
+        while (result.equals(CONTINUED) && continuations.size() <= FILE_COUNT) {
+            S3Event next = continuations.get(continuations.size() - 1);
+            assertEquals(keys(event), keys(next));
+            result = function(summaries, uploads, capture).handleRequest(next, new TestContext(3));
+        }
+
+        assertEquals(COMPLETE, result);
+        assertEquals(FILE_COUNT / 2 - 1, continuations.size());
+        assertTrue(continuations.size() > 3);
+        assertArrayEquals(read(expected, SUMMARY_KEY), read(summaries, SUMMARY_KEY));
+    }
+
+    @Test
+    void invocationWithoutTimeForAnyFileFailsInsteadOfContinuing() throws IOException {
+        ObjectStore uploads = new LocalObjectStore(root.resolve(BUCKET));
+        S3Event event = writeFiles(uploads);
+        Continuation none = (next, context) -> fail("Continued without making progress");
+        LambdaFunction function = function(new LocalObjectStore(root.resolve("summaries")), uploads, none);
+        try {
+            function.handleRequest(event, new TestContext(0));
+            fail("Expected the invocation to fail");
+        } catch (LambdaFunction.UnfinishedSummaryException e) {
+            assertTrue(e.getMessage().contains("No time left"));
+        }
+    }
+
+    private static LambdaFunction function(ObjectStore summaries, ObjectStore uploads, Continuation continuation) {
+        return new LambdaFunction(null, summaries, bucket -> uploads, continuation);
+    }
+
+    /**
+     * Files with products shared between files and repeated within them, so any change in the order of the
+     * additions would show in the totals.
+     */
+    private static S3Event writeFiles(ObjectStore uploads) throws IOException {
+        Random random = new Random(13);
+        List<S3EventNotificationRecord> records = new ArrayList<>();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            StringBuilder csv = new StringBuilder("Date,Store,Product,Quantity,Unit Price,Unit Cost,Unit Profit,Total\n");
+            for (int row = 0; row < 500; row++) {
+                int quantity = 1 + random.nextInt(9);
+                double price = random.nextInt(100000) / 100.0;
+                double cost = random.nextInt(100000) / 100.0;
+                csv.append("05-02-2024,Store ").append(i % 5).append(",SKU-").append(random.nextInt(300)).append(',')
+                        .append(quantity).append(',').append(price).append(',').append(cost).append(',')
+                        .append(price - cost).append(',').append(price * quantity).append('\n');
+            }
+            String key = "05-02-2024/store" + i + ".csv";
+            uploads.put(key, csv.toString().getBytes(StandardCharsets.UTF_8));
+            S3Entity s3 = new S3Entity(null, new S3BucketEntity(BUCKET, null, null), new S3ObjectEntity(key, 1L, null, null, null), "1.0");
+            records.add(new S3EventNotificationRecord("us-east-1", "ObjectCreated:Put", "aws:s3", null, "2.1", null, null, s3, null));
+        }
+        return new S3Event(records);
+    }
+
+    private static List<String> keys(S3Event event) {
+        List<String> keys = new ArrayList<>();
+        for (S3EventNotificationRecord record : event.getRecords()) {
+            keys.add(record.getS3().getBucket().getName() + "/" + record.getS3().getObject().getUrlDecodedKey());
+        }
+        keys.sort(null);
+        return keys;
+    }
+
+    private static byte[] read(ObjectStore store, String key) throws IOException {
+        try (ObjectContent content = store.get(key)) {
+            return content.readAllBytes();
+        }
+    }
+
+    /**
+     * Context with plenty of time left for the first {@code checks} checks of the remaining time, then none.
+     */
+    private static class TestContext implements Context {
+
+        private final int checks;
+        private int checked;
+
+        TestContext(int checks) {
+            this.checks = checks;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return checked++ < checks ? Integer.MAX_VALUE : 0;
+        }
+
+        @Override
+        public String getAwsRequestId() {
+            return "test";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return null;
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "test";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return null;
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 0;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return new LambdaLogger() {
+                @Override
+                public void log(String message) {
+                }
+
+                @Override
+                public void log(byte[] message) {
+                }
+            };
+        }
+    }
+}